@@ -0,0 +1,73 @@
+package com.apeer.sdk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Random;
+
+final class BenchmarkFiles {
+    private BenchmarkFiles() {
+    }
+
+    static ISystem environment(Map<String, String> variables) {
+        return variables::get;
+    }
+
+    static String inputJson(int arraySize) {
+        var random = new Random(42);
+        var json = new StringBuilder(arraySize * 20 + 128);
+        json.append("{\"WFE_output_params_file\":\"out.json\",\"input_image\":\"/input/image.tiff\",\"threshold\":128,\"sigma\":1.5,\"intensities\":[");
+        for (int i = 0; i < arraySize; i++) {
+            json.append(i > 0 ? "," : "").append(random.nextGaussian() * 1000);
+        }
+        return json.append("]}").toString();
+    }
+
+    static double[] randomDoubles(int size) {
+        var random = new Random(42);
+        var values = new double[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = Math.round(random.nextGaussian() * 1e6) / 1e3;
+        }
+        return values;
+    }
+
+    static Path createFile(Path path, int size) {
+        try {
+            var bytes = new byte[size];
+            new Random(size).nextBytes(bytes);
+            Files.createDirectories(path.getParent());
+            return Files.write(path, bytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    static void deleteRecursively(Path folder) {
+        if (!Files.exists(folder)) {
+            return;
+        }
+        try {
+            Files.walkFileTree(folder, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path directory, IOException ex) throws IOException {
+                    Files.delete(directory);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.apeer.sdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures construction of the ADK and decoding of inputs for growing WFE_INPUT_JSON payloads
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputBenchmark {
+    @Param({"10", "10000", "1000000"})
+    public int arraySize;
+
+    private ISystem system;
+    private IFileOutput fileOutput;
+
+    @Setup
+    public void setup() {
+        system = BenchmarkFiles.environment(Map.of("WFE_INPUT_JSON", BenchmarkFiles.inputJson(arraySize)));
+        fileOutput = new OutputJsonFileWriter();
+    }
+
+    @Benchmark
+    public ApeerDevKit construct() throws ApeerEnvironmentException {
+        return new ApeerDevKit(system, fileOutput);
+    }
+
+    @Benchmark
+    public int getScalarInputs() throws ApeerEnvironmentException, ApeerInputException {
+        var adk = new ApeerDevKit(system, fileOutput);
+        return adk.getInput("threshold", int.class) + adk.getInput("input_image", String.class).length();
+    }
+
+    @Benchmark
+    public Double[] getBoxedArrayInput() throws ApeerEnvironmentException, ApeerInputException {
+        return new ApeerDevKit(system, fileOutput).getInput("intensities", Double[].class);
+    }
+
+    @Benchmark
+    public double[] getPrimitiveArrayInput() throws ApeerEnvironmentException, ApeerInputException {
+        return new ApeerDevKit(system, fileOutput).getDoubleArray("intensities");
+    }
+}
@@ -0,0 +1,81 @@
+package com.apeer.sdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures setting large array outputs and writing them with {@code finalizeModule()} to a local folder
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutputBenchmark {
+    @Param({"10", "10000", "1000000"})
+    public int arraySize;
+
+    private Path outputFolder;
+    private ISystem system;
+    private IFileOutput fileOutput;
+    private double[] values;
+    private Double[] boxedValues;
+    private ApeerDevKit adk;
+
+    @Setup
+    public void setup() throws IOException {
+        outputFolder = Files.createTempDirectory("adk-output-benchmark");
+        system = BenchmarkFiles.environment(Map.of("WFE_INPUT_JSON", BenchmarkFiles.inputJson(0)));
+        fileOutput = new RedirectingFileOutput(new OutputJsonFileWriter(), outputFolder);
+        values = BenchmarkFiles.randomDoubles(arraySize);
+        boxedValues = new Double[arraySize];
+        for (int i = 0; i < arraySize; i++) {
+            boxedValues[i] = values[i];
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void createAdk() throws ApeerEnvironmentException {
+        adk = new ApeerDevKit(system, fileOutput);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkFiles.deleteRecursively(outputFolder);
+    }
+
+    @Benchmark
+    public void setPrimitiveArrayOutput() throws ApeerOutputException {
+        adk.setOutput("areas", values);
+    }
+
+    @Benchmark
+    public void finalizePrimitiveArrayOutput() throws ApeerOutputException {
+        adk.setOutput("areas", values);
+        adk.finalizeModule();
+    }
+
+    @Benchmark
+    public void finalizeBoxedArrayOutput() throws ApeerOutputException {
+        adk.setOutput("areas", boxedValues);
+        adk.finalizeModule();
+    }
+}
@@ -0,0 +1,49 @@
+package com.apeer.sdk;
+
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * Writes everything meant for {@link ApeerDevKit#OUTPUT_FILE_PREFIX} into a local folder instead, so benchmarks can run outside of a module container
+ */
+class RedirectingFileOutput implements IFileOutput {
+    private final IFileOutput fileOutput;
+    private final Path outputFolder;
+
+    RedirectingFileOutput(IFileOutput fileOutput, Path outputFolder) {
+        this.fileOutput = fileOutput;
+        this.outputFolder = outputFolder;
+    }
+
+    @Override
+    public void writeTextToFile(String filePath, String text) throws ApeerOutputException {
+        fileOutput.writeTextToFile(redirect(filePath).toString(), text);
+    }
+
+    @Override
+    public void writeJsonToFile(String filePath, IJsonContent content) throws ApeerOutputException {
+        fileOutput.writeJsonToFile(redirect(filePath).toString(), content);
+    }
+
+    @Override
+    public void moveFile(Path sourcePath, Path targetPath) throws ApeerOutputException {
+        fileOutput.moveFile(sourcePath, redirect(targetPath.toString()));
+    }
+
+    @Override
+    public StagedFile stageFile(Path sourcePath, Path targetPath) throws ApeerOutputException {
+        return fileOutput.stageFile(sourcePath, redirect(targetPath.toString()));
+    }
+
+    @Override
+    public WritableByteChannel openFile(Path targetPath) throws ApeerOutputException {
+        return fileOutput.openFile(redirect(targetPath.toString()));
+    }
+
+    private Path redirect(String path) {
+        if (!path.startsWith(ApeerDevKit.OUTPUT_FILE_PREFIX)) {
+            return Path.of(path);
+        }
+        return outputFolder.resolve(path.substring(ApeerDevKit.OUTPUT_FILE_PREFIX.length()));
+    }
+}
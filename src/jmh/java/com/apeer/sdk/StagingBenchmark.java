@@ -0,0 +1,115 @@
+package com.apeer.sdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code setFileOutput} for one large file and for many small files, staged into a local folder
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StagingBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class LargeFile extends Staging {
+        @Param({"1048576", "67108864"})
+        public int fileSize;
+
+        @Param({"HARD_LINK,TRANSFER", "TRANSFER"})
+        public String strategies;
+
+        @Override
+        String strategies() {
+            return strategies;
+        }
+
+        @Setup
+        public void createFiles() throws IOException {
+            createWorkFolder();
+            files = new String[]{BenchmarkFiles.createFile(workFolder.resolve("input/large.bin"), fileSize).toString()};
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SmallFiles extends Staging {
+        @Param({"500"})
+        public int fileCount;
+
+        @Param({"HARD_LINK,TRANSFER", "TRANSFER"})
+        public String strategies;
+
+        @Override
+        String strategies() {
+            return strategies;
+        }
+
+        @Setup
+        public void createFiles() throws IOException {
+            createWorkFolder();
+            files = new String[fileCount];
+            for (int i = 0; i < fileCount; i++) {
+                files[i] = BenchmarkFiles.createFile(workFolder.resolve("input/tiles/tile" + i + ".bin"), 4 * 1024).toString();
+            }
+        }
+    }
+
+    public abstract static class Staging {
+        Path workFolder;
+        String[] files;
+        ApeerDevKit adk;
+
+        abstract String strategies();
+
+        void createWorkFolder() throws IOException {
+            workFolder = Files.createTempDirectory("adk-staging-benchmark");
+        }
+
+        @Setup(Level.Invocation)
+        public void createAdk() throws ApeerEnvironmentException {
+            var outputFolder = workFolder.resolve("output");
+            BenchmarkFiles.deleteRecursively(outputFolder);
+            var system = BenchmarkFiles.environment(Map.of(
+                    "WFE_INPUT_JSON", BenchmarkFiles.inputJson(0),
+                    "ADK_STAGING_STRATEGIES", strategies()));
+            var fileOutput = new RedirectingFileOutput(new OutputJsonFileWriter(ApeerSettings.fromSystem(system).getStagingStrategies()), outputFolder);
+            adk = new ApeerDevKit(system, fileOutput);
+        }
+
+        @TearDown
+        public void deleteWorkFolder() {
+            BenchmarkFiles.deleteRecursively(workFolder);
+        }
+    }
+
+    @Benchmark
+    public void stageSingleFile(LargeFile state) throws ApeerOutputException {
+        state.adk.setFileOutput("image", state.files[0]);
+        state.adk.finalizeModule();
+    }
+
+    @Benchmark
+    public void stageManySmallFiles(SmallFiles state) throws ApeerOutputException {
+        state.adk.setFileOutput("tiles", state.files);
+        state.adk.finalizeModule();
+    }
+}
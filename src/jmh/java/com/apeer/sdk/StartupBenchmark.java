@@ -0,0 +1,96 @@
+package com.apeer.sdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the first module run in a fresh JVM: loading and initializing the ADK and its dependencies, reading inputs, staging a file and finalizing.
+ * Every fork is one cold start, once with the default CDS archive of the JDK and once with the AppCDS archive of the appcds profile. The main method is
+ * the training run that archive is dumped from
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+    static final String APP_CDS_ARCHIVE = "target/apeer-dev-kit.jsa";
+
+    private Path folder;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        folder = Files.createTempDirectory("adk-startup");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkFiles.deleteRecursively(folder);
+    }
+
+    @Benchmark
+    public void firstModuleRun() throws ApeerException {
+        runModule(folder);
+    }
+
+    @Benchmark
+    @Fork(value = 10, jvmArgsAppend = "-XX:SharedArchiveFile=" + APP_CDS_ARCHIVE)
+    public void firstModuleRunWithAppCds() throws ApeerException {
+        runModule(folder);
+    }
+
+    /**
+     * Training run for the AppCDS archive
+     *
+     * @param args The folder the training module writes to
+     */
+    public static void main(String[] args) throws ApeerException, IOException {
+        var folder = Files.createDirectories(Path.of(args[0]));
+        runModule(folder);
+    }
+
+    private static void runModule(Path folder) throws ApeerException {
+        var system = BenchmarkFiles.environment(Map.of(
+                "WFE_INPUT_JSON", BenchmarkFiles.inputJson(1000),
+                "ADK_OUTPUT_DIR", folder.resolve("output").toString(),
+                "ADK_LOG_LEVEL", "WARN"));
+        var adk = new ApeerDevKit(system, null, null);
+
+        var threshold = adk.getInput("threshold", int.class);
+        var sigma = adk.getInput("sigma", double.class);
+        var image = adk.getInput("input_image", String.class);
+        var intensities = adk.getDoubleArray("intensities");
+        var boxedIntensities = adk.getInput("intensities", Double[].class);
+
+        var resultFile = BenchmarkFiles.createFile(folder.resolve("result-" + System.nanoTime() + ".bin"), 4096);
+        adk.setOutput("threshold", threshold * sigma);
+        adk.setOutput("image", image);
+        adk.setOutput("intensities", intensities);
+        adk.setOutput("count", boxedIntensities.length);
+        adk.setFileOutput("result", resultFile.toString());
+        adk.finalizeModule();
+        try {
+            Files.delete(resultFile);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
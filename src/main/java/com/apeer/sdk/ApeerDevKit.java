@@ -1,59 +1,212 @@
 package com.apeer.sdk;
 
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
+import java.nio.DoubleBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+import org.apache.commons.lang3.Validate;
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 public class ApeerDevKit {
     public static final String OUTPUT_FILE_PREFIX = "/output/";
+    private static final String WFE_INPUT_JSON_KEY = "WFE_INPUT_JSON";
+    private static final String WFE_INPUT_JSON_FILE_KEY = "WFE_INPUT_JSON_FILE";
+    private static final String OUTPUT_PARAMS_FILE_KEY = "WFE_output_params_file";
+    private static final String DEFAULT_CACHE_DIGEST = "SHA-256";
+    private static final String INPUT_READ_PHASE = "input.read";
+    private static final String INPUT_INDEX_PHASE = "input.index";
+    private static final String INPUT_DECODE_PHASE = "input.decode";
+    private static final String INPUT_BIND_PHASE = "input.bind";
+    private static final String OUTPUT_WALK_PHASE = "output.walk";
+    private static final String FINALIZE_AWAIT_PHASE = "finalize.await";
+    private static final String FINALIZE_SERIALIZE_PHASE = "finalize.serialize";
+    private static final String FINALIZE_WRITE_PHASE = "finalize.write";
     private final ISystem system;
     private final IFileOutput fileOutputWriter;
+    private final ManagedExecutors executors;
+    private final ManagedExecutors.Usage executorUsage;
+    private final Semaphore openFiles;
+    private final DirectBufferPool chunkBuffers;
+    private final int chunkReaders;
+    private ChunkedFileReader chunkedReader;
+    private ModuleExecutor moduleIoExecutor;
+    private final FileStager fileStager;
+    private final boolean asyncFileOutput;
 
-    private final JSONObject inputJson;
-    private final JSONObject outputJson;
+    private final LazyJsonInput inputJson;
+    private final OutputStore outputs;
     private final String outputParamsFile;
+    private final String outputFolder;
+    private final IMetricsSink metrics;
+    private final boolean metricsEnabled;
+    private final ILogger logger;
+    private final String digestAlgorithm;
+    private final OutputManifest manifest;
+    private final boolean digestOutputs;
+    private final InputPrefetcher prefetcher;
+    private final Consumer<Map<String, Object>> outputReceiver;
 
     ApeerDevKit(ISystem system, IFileOutput fileOutputWriter) throws ApeerEnvironmentException {
+        this(system, fileOutputWriter, createInputSource(system), null, null);
+    }
+
+    /**
+     * @param metrics The sink for the timings of the ADK or null to use the sink configured by ADK_METRICS
+     * @param logger  The logger of the ADK or null to log to the console as configured by ADK_LOG_LEVEL and ADK_LOG_MAX_LENGTH
+     */
+    ApeerDevKit(ISystem system, IFileOutput fileOutputWriter, IInputSource inputSource, IMetricsSink metrics, ILogger logger)
+            throws ApeerEnvironmentException {
+        this(system, fileOutputWriter, inputSource, null, null, metrics, logger);
+    }
+
+    /**
+     * Initializes an ADK that receives its inputs and hands over its outputs as objects, as the stages of an {@link ApeerPipeline} do
+     *
+     * @param inputValues    The inputs including "WFE_output_params_file" instead of reading WFE_INPUT_JSON from the input source, or null
+     * @param outputReceiver Receives the output values on finalize instead of the output params file being written, or null
+     */
+    ApeerDevKit(ISystem system, IFileOutput fileOutputWriter, IInputSource inputSource, Map<String, Object> inputValues,
+                Consumer<Map<String, Object>> outputReceiver, IMetricsSink metrics, ILogger logger) throws ApeerEnvironmentException {
+        this(system, fileOutputWriter, inputSource, inputValues, outputReceiver, metrics, logger, null);
+    }
+
+    /**
+     * @param executors The executors of the ADK or null to use the ones shared by the process
+     */
+    ApeerDevKit(ISystem system, IFileOutput fileOutputWriter, IInputSource inputSource, Map<String, Object> inputValues,
+                Consumer<Map<String, Object>> outputReceiver, IMetricsSink metrics, ILogger logger, ManagedExecutors executors)
+            throws ApeerEnvironmentException {
+        this(system, fileOutputWriter, inputSource, inputValues, outputReceiver, metrics, logger, executors, ApeerSettings.fromSystem(system));
+    }
+
+    private ApeerDevKit(ISystem system, IFileOutput fileOutputWriter, IInputSource inputSource, Map<String, Object> inputValues,
+                        Consumer<Map<String, Object>> outputReceiver, IMetricsSink metrics, ILogger logger, ManagedExecutors executors,
+                        ApeerSettings settings) throws ApeerEnvironmentException {
         this.system = system;
+        this.outputReceiver = outputReceiver;
         this.fileOutputWriter = fileOutputWriter;
 
-        log("Initializing");
+        this.logger = logger != null ? logger : ConsoleLogger.standardOutput(settings);
+        asyncFileOutput = settings.isAsyncFileOutput();
+        outputFolder = settings.getOutputFolder();
+        digestAlgorithm = settings.getDigestAlgorithm();
+        manifest = digestAlgorithm == null ? null : new OutputManifest(digestAlgorithm);
+        digestOutputs = settings.isDigestOutputs();
 
-        var wfeInputJsonKey = "WFE_INPUT_JSON";
-        var wfe_input_json = this.system.getenv(wfeInputJsonKey);
-        if (wfe_input_json == null || wfe_input_json.isBlank()) {
-            throw new ApeerEnvironmentException("Could not find \"" + wfeInputJsonKey + "\" in environment variables");
-        }
+        log(LogLevel.INFO, () -> "Initializing");
 
-        log("Found \"" + wfeInputJsonKey + "\" to be \"" + wfe_input_json + "\"");
+        var readStart = System.nanoTime();
+        var wfe_input_json = inputValues == null ? inputSource.read() : "";
+        var indexStart = System.nanoTime();
+
+        if (inputValues == null) {
+            log(LogLevel.INFO, () -> "Found \"" + WFE_INPUT_JSON_KEY + "\" in " + inputSource + " with " + wfe_input_json.length() + " characters");
+            log(LogLevel.DEBUG, () -> "\"" + WFE_INPUT_JSON_KEY + "\" is " + wfe_input_json);
+        } else {
+            log(LogLevel.INFO, () -> "Received " + inputValues.size() + " inputs as objects");
+        }
 
         try {
-            inputJson = new JSONObject(wfe_input_json);
-            outputParamsFile = inputJson.getString("WFE_output_params_file");
+            inputJson = inputValues == null ? LazyJsonInput.index(wfe_input_json) : LazyJsonInput.of(inputValues);
+            outputParamsFile = inputJson.getString(OUTPUT_PARAMS_FILE_KEY);
         } catch (JSONException ex) {
-            throw new ApeerEnvironmentException("Could not decode \"" + wfeInputJsonKey + "\"", ex);
+            throw new ApeerEnvironmentException("Could not decode \"" + WFE_INPUT_JSON_KEY + "\"", ex);
         }
+        var indexEnd = System.nanoTime();
+
+        this.metrics = metrics != null ? metrics : createMetricsSink(settings, fileOutputWriter, companionFile("metrics"));
+        metricsEnabled = this.metrics.isEnabled();
+        this.metrics.record(INPUT_READ_PHASE, null, indexStart - readStart, wfe_input_json.length());
+        this.metrics.record(INPUT_INDEX_PHASE, null, indexEnd - indexStart, wfe_input_json.length());
 
-        outputJson = new JSONObject();
+        prefetcher = createPrefetcher(settings);
+        if (prefetcher != null) {
+            prefetcher.start();
+        }
 
-        log("Successfully read \"" + wfeInputJsonKey + "\". Output params will be written to \"" + outputParamsFile + "\"");
+        this.executors = executors != null ? executors : ManagedExecutors.shared(settings);
+        executorUsage = this.executors.getUsage();
+        openFiles = new Semaphore(settings.getMaxOpenFiles());
+        chunkBuffers = new DirectBufferPool(settings.getChunkSize(), settings.getChunkBuffers());
+        chunkReaders = settings.getIoParallelism();
+        fileStager = new FileStager(fileOutputWriter, settings.getStagingParallelism(), this.metrics, this.executors, openFiles);
+        outputs = new OutputStore();
+
+        log(LogLevel.INFO, () -> "Successfully read \"" + WFE_INPUT_JSON_KEY + "\". Output params will be written to \"" + outputParamsFile + "\"");
     }
 
     /**
-     * Initializes the ADK and reads-in the WFE_INPUT_JSON. <b>NOTE</b> You must call {@code finalizeModule()} after all all other operations on this class
+     * Initializes the ADK and reads-in the WFE_INPUT_JSON. <b>NOTE</b> You must call {@code finalizeModule()} after all all other operations on this class.
+     * When the WFE_INPUT_JSON_FILE environment variable is set, the WFE_INPUT_JSON is read from that file instead, or from stdin if it is "-"
      *
      * @throws ApeerEnvironmentException When the WFE_INPUT_JSON environment variable could either - not be found or - it's value is not a valid JSON or - it
      *                                   does not contain "output_params_file"
      */
     public ApeerDevKit() throws ApeerEnvironmentException {
-        this(new SystemFacade(), new OutputJsonFileWriter());
+        this(new SystemFacade());
+    }
+
+    /**
+     * Initializes the ADK like {@link #ApeerDevKit()} but reports the timings of reading inputs, staging file outputs and finalizing to the given sink
+     *
+     * @param metrics Receives the timings, see {@link IMetricsSink}
+     * @throws ApeerEnvironmentException When the WFE_INPUT_JSON environment variable could not be read, see {@link #ApeerDevKit()}
+     */
+    public ApeerDevKit(IMetricsSink metrics) throws ApeerEnvironmentException {
+        this(new SystemFacade(), Validate.notNull(metrics), null);
     }
 
     /**
-     * Gets the input from the WFE_INPUT_JSON environment variable
+     * Initializes the ADK like {@link #ApeerDevKit()} but reports timings and log messages to the given sink and logger
+     *
+     * @param metrics Receives the timings or null to use the sink configured by ADK_METRICS
+     * @param logger  Receives the log messages of the ADK or null to log to the console. Its methods are called on the threads of the ADK and must not
+     *                block them
+     * @throws ApeerEnvironmentException When the WFE_INPUT_JSON environment variable could not be read, see {@link #ApeerDevKit()}
+     */
+    public ApeerDevKit(IMetricsSink metrics, ILogger logger) throws ApeerEnvironmentException {
+        this(new SystemFacade(), metrics, logger);
+    }
+
+    private ApeerDevKit(ISystem system) throws ApeerEnvironmentException {
+        this(system, null, null);
+    }
+
+    ApeerDevKit(ISystem system, IMetricsSink metrics, ILogger logger) throws ApeerEnvironmentException {
+        this(system, ApeerSettings.fromSystem(system), metrics, logger);
+    }
+
+    /**
+     * @param settings The settings read from the system, for callers that already read them
+     */
+    ApeerDevKit(ISystem system, ApeerSettings settings, IMetricsSink metrics, ILogger logger) throws ApeerEnvironmentException {
+        this(system, createFileOutput(settings), createInputSource(system), null, null, metrics, logger, null, settings);
+    }
+
+    /**
+     * Gets the input from the WFE_INPUT_JSON environment variable. The value is decoded on the first call for its key, inputs that are never read are
+     * never decoded
      *
      * @param key  The input key as defined in the module_specification.json of your module
      * @param type The type of the input as defined in the module_specification.json of your module
@@ -63,9 +216,15 @@ public class ApeerDevKit {
      */
     @SuppressWarnings("unchecked")
     public <T> T getInput(String key, Class<T> type) throws ApeerInputException {
-        if (!inputJson.has(key)) {
-            throw new ApeerInputException("Could not find key \"" + key + "\" in inputs");
-        }
+        var start = startRead(key);
+        var value = decodeInput(key, type);
+        recordDecode(key, start);
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T decodeInput(String key, Class<T> type) throws ApeerInputException {
+        requireInput(key);
 
         if (type == String.class) {
             return (T) inputJson.getString(key);
@@ -75,9 +234,17 @@ public class ApeerDevKit {
             return (T) (Double) inputJson.getDouble(key);
         } else if (type == Boolean.class || type == boolean.class) {
             return (T) (Boolean) inputJson.getBoolean(key);
+        } else if (type == int[].class) {
+            return (T) readIntArray(key);
+        } else if (type == long[].class) {
+            return (T) readLongArray(key);
+        } else if (type == double[].class) {
+            return (T) readDoubleArray(key);
+        } else if (type == boolean[].class) {
+            return (T) readBooleanArray(key);
         } else if (type.isArray()) {
             var jsonItems = inputJson.getJSONArray(key);
-            T items = (T) Array.newInstance(type.getComponentType(), jsonItems.length());
+            T items = (T) newArray(type.getComponentType(), jsonItems.length());
             for (int i = 0; i < jsonItems.length(); i++) {
                 var value = jsonItems.get(i);
                 if (value instanceof BigDecimal) {
@@ -93,78 +260,689 @@ public class ApeerDevKit {
     }
 
     /**
-     * Sets the output that will be written to output_params_file
+     * Reads all inputs into a new object in one pass, as declared in the module specification of the binder. Create the binder once, e.g. in a static
+     * field, when many modules run in one process
+     *
+     * @param binder Knows the module specification and the class of the object, see {@link InputBinder}
+     * @return A new object with all bound inputs
+     * @throws ApeerInputException When inputs are missing or do not have the type of the module specification. All problems are reported together
+     */
+    public <T> T bindInputs(InputBinder<T> binder) throws ApeerInputException {
+        Validate.notNull(binder);
+
+        if (prefetcher != null) {
+            binder.keys().forEach(prefetcher::recordAccess);
+        }
+        var start = startTimer();
+        var inputs = binder.bind(inputJson);
+        if (metricsEnabled) {
+            metrics.record(INPUT_BIND_PHASE, null, System.nanoTime() - start, 0);
+        }
+        return inputs;
+    }
+
+    /**
+     * Gets an array of integers from the WFE_INPUT_JSON environment variable. The numbers are parsed directly into the returned array without boxing
+     *
+     * @param key The input key as defined in the module_specification.json of your module
+     * @return A new array with the values associated with the key
+     * @throws ApeerInputException When key could not be found or its value is not an array of integers
+     */
+    public int[] getIntArray(String key) throws ApeerInputException {
+        var start = startRead(key);
+        var values = readIntArray(key);
+        recordDecode(key, start);
+        return values;
+    }
+
+    private int[] readIntArray(String key) throws ApeerInputException {
+        requireInput(key);
+        try {
+            return inputJson.getIntArray(key);
+        } catch (JSONException ex) {
+            throw new ApeerInputException("Could not read input \"" + key + "\" as int array", ex);
+        }
+    }
+
+    /**
+     * Gets an array of long integers from the WFE_INPUT_JSON environment variable. The numbers are parsed directly into the returned array without boxing
+     *
+     * @param key The input key as defined in the module_specification.json of your module
+     * @return A new array with the values associated with the key
+     * @throws ApeerInputException When key could not be found or its value is not an array of integers
+     */
+    public long[] getLongArray(String key) throws ApeerInputException {
+        var start = startRead(key);
+        var values = readLongArray(key);
+        recordDecode(key, start);
+        return values;
+    }
+
+    private long[] readLongArray(String key) throws ApeerInputException {
+        requireInput(key);
+        try {
+            return inputJson.getLongArray(key);
+        } catch (JSONException ex) {
+            throw new ApeerInputException("Could not read input \"" + key + "\" as long array", ex);
+        }
+    }
+
+    /**
+     * Gets an array of numbers from the WFE_INPUT_JSON environment variable. The numbers are parsed directly into the returned array without boxing
+     *
+     * @param key The input key as defined in the module_specification.json of your module
+     * @return A new array with the values associated with the key
+     * @throws ApeerInputException When key could not be found or its value is not an array of numbers
+     */
+    public double[] getDoubleArray(String key) throws ApeerInputException {
+        var start = startRead(key);
+        var values = readDoubleArray(key);
+        recordDecode(key, start);
+        return values;
+    }
+
+    private double[] readDoubleArray(String key) throws ApeerInputException {
+        requireInput(key);
+        try {
+            return inputJson.getDoubleArray(key);
+        } catch (JSONException ex) {
+            throw new ApeerInputException("Could not read input \"" + key + "\" as double array", ex);
+        }
+    }
+
+    /**
+     * Gets an array of numbers from the WFE_INPUT_JSON environment variable as read-only buffer
+     *
+     * @param key The input key as defined in the module_specification.json of your module
+     * @return A read-only buffer view on a new array with the values associated with the key
+     * @throws ApeerInputException When key could not be found or its value is not an array of numbers
+     */
+    public DoubleBuffer getDoubleBuffer(String key) throws ApeerInputException {
+        return DoubleBuffer.wrap(getDoubleArray(key)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets an array of booleans from the WFE_INPUT_JSON environment variable
+     *
+     * @param key The input key as defined in the module_specification.json of your module
+     * @return A new array with the values associated with the key
+     * @throws ApeerInputException When key could not be found or its value is not an array of booleans
+     */
+    public boolean[] getBooleanArray(String key) throws ApeerInputException {
+        var start = startRead(key);
+        var values = readBooleanArray(key);
+        recordDecode(key, start);
+        return values;
+    }
+
+    private boolean[] readBooleanArray(String key) throws ApeerInputException {
+        requireInput(key);
+        try {
+            return inputJson.getBooleanArray(key);
+        } catch (JSONException ex) {
+            throw new ApeerInputException("Could not read input \"" + key + "\" as boolean array", ex);
+        }
+    }
+
+    /**
+     * Creates the array types of the module specification without reflection, which keeps them working in native images without metadata
+     */
+    private static Object newArray(Class<?> componentType, int length) {
+        if (componentType == String.class) {
+            return new String[length];
+        } else if (componentType == Integer.class) {
+            return new Integer[length];
+        } else if (componentType == Double.class) {
+            return new Double[length];
+        } else if (componentType == Boolean.class) {
+            return new Boolean[length];
+        }
+        return Array.newInstance(componentType, length);
+    }
+
+    /**
+     * Reads a file input in chunks and passes them to the consumer on the compute pool, see {@link #getComputePool()}. Chunks are read in parallel
+     * with positional reads into reused direct buffers. Reading waits while all buffers are being consumed, so the memory stays at ADK_CHUNK_BUFFERS
+     * times ADK_CHUNK_SIZE however large the file is. Use it instead of a read loop for large files, e.g. to hash or decode an image in parallel
+     *
+     * The calling thread blocks until every chunk was consumed and reads chunks itself meanwhile, so it may be called from the I/O executor. A buffer
+     * is reused once the consumer returns, so the consumer must not keep the chunk or wait for other chunks, and must not call this method itself:
+     * it would wait for buffers that only its own callers can return
+     *
+     * <pre>{@code
+     * var zeros = new LongAdder();
+     * adk.readFileInput("input_image", (offset, chunk) -> {
+     *     while (chunk.hasRemaining()) {
+     *         if (chunk.get() == 0) {
+     *             zeros.increment();
+     *         }
+     *     }
+     * });
+     * }</pre>
+     *
+     * @param key      The input key of a file input as defined in the module_specification.json of your module
+     * @param consumer Called once per chunk, from several threads at the same time and in no particular order
+     * @return The number of bytes read
+     * @throws ApeerInputException When the key could not be found, the file could not be read or the consumer threw an exception. Reading stops at
+     *                             the first failure
+     */
+    public long readFileInput(String key, IChunkConsumer consumer) throws ApeerInputException {
+        Validate.notNull(consumer);
+
+        var path = getInput(key, String.class);
+        var start = startTimer();
+        long size;
+        try {
+            size = getChunkedReader().read(Path.of(path), consumer);
+        } catch (InvalidPathException ex) {
+            throw new ApeerInputException("Input \"" + key + "\" is not a file path", ex);
+        }
+        if (metricsEnabled) {
+            metrics.record(ChunkedFileReader.READ_PHASE, key, System.nanoTime() - start, size);
+        }
+        return size;
+    }
+
+    private synchronized ChunkedFileReader getChunkedReader() {
+        if (chunkedReader == null) {
+            chunkedReader = new ChunkedFileReader(chunkBuffers, executors.getIoExecutor(), executors.getComputePool(), chunkReaders);
+        }
+        return chunkedReader;
+    }
+
+    /**
+     * Stops prefetching input files, see ADK_PREFETCH. Files that were not read completely yet are then read from disk by the module as usual. Does
+     * nothing when prefetching is disabled
+     */
+    public void cancelPrefetch() {
+        if (prefetcher != null) {
+            prefetcher.cancel();
+        }
+    }
+
+    /**
+     * Returns the pool for CPU-bound work of the module, with one thread per CPU of the container by default, see ADK_COMPUTE_PARALLELISM. Use it
+     * instead of creating a pool. It is shared by all ADKs of the process and must not be shut down, its usage is logged by {@code finalizeModule()}
+     *
+     * @throws IllegalStateException When the module was already finalized
+     */
+    public ForkJoinPool getComputePool() {
+        checkExecutorsAvailable();
+        return executors.getComputePool();
+    }
+
+    /**
+     * Returns the executor for blocking I/O of the module, which also stages file outputs. It runs each task on a virtual thread when the JVM supports
+     * them and on a bounded pool otherwise, see ADK_VIRTUAL_THREADS and ADK_IO_PARALLELISM. It is shared by all ADKs of the process and can not be
+     * shut down. {@code finalizeModule()} waits for the tasks submitted to it instead, so their outputs are written too
+     *
+     * @throws IllegalStateException When the module was already finalized
+     */
+    public ExecutorService getIoExecutor() {
+        checkExecutorsAvailable();
+        return getModuleIoExecutor();
+    }
+
+    private synchronized ModuleExecutor getModuleIoExecutor() {
+        if (moduleIoExecutor == null) {
+            moduleIoExecutor = new ModuleExecutor(executors.getIoExecutor());
+        }
+        return moduleIoExecutor;
+    }
+
+    private void checkExecutorsAvailable() {
+        if (isFinalized()) {
+            throw new IllegalStateException("The executors of the ADK can not be used after finalizeModule()");
+        }
+    }
+
+    private long startRead(String key) {
+        if (prefetcher != null) {
+            prefetcher.recordAccess(key);
+        }
+        return startTimer();
+    }
+
+    private long startTimer() {
+        return metricsEnabled ? System.nanoTime() : 0;
+    }
+
+    private void recordDecode(String key, long start) {
+        if (metricsEnabled) {
+            metrics.record(INPUT_DECODE_PHASE, key, System.nanoTime() - start, inputJson.length(key));
+        }
+    }
+
+    private void requireInput(String key) throws ApeerInputException {
+        if (!inputJson.has(key)) {
+            throw new ApeerInputException("Could not find key \"" + key + "\" in inputs");
+        }
+    }
+
+    /**
+     * Sets the output that will be written to output_params_file. Outputs can be set from any thread until {@code finalizeModule()} is called
      *
      * @param key   The output key as defined in the module_specification.json of your module
      * @param value The value that will be written to the associated key. Can be any type that is supported by JSON but must correspond to the type as specified
-     *              in the module_specification.json of your module
-     * @throws ApeerOutputException When the value could not be parsed to JSON
+     *              in the module_specification.json of your module. Arrays of double, float, int and long are kept as they are, without copying, and
+     *              written with a fast number formatter. Do not change them after this call
+     * @throws ApeerOutputException When the value could not be parsed to JSON or the module was already finalized
      */
     public void setOutput(String key, Object value) throws ApeerOutputException {
+        putOutput(key, value, false);
+    }
+
+    /**
+     * @param fileOutput true when the value refers to files in the output folder, which get a digest with ADK_DIGEST_OUTPUTS
+     */
+    private void putOutput(String key, Object value, boolean fileOutput) throws ApeerOutputException {
         try {
-            outputJson.put(key, value);
+            JSONObject.testValidity(value);
         } catch (JSONException ex) {
             throw new ApeerOutputException("Could not set output \"" + key + "\"", ex);
         }
+
+        outputs.put(key, value);
+        if (manifest != null) {
+            manifest.setFileOutput(key, fileOutput);
+        }
     }
 
     /**
      * Sets a file output that will be written to output_params_file. Also copies the file to the output folder of your module as required by the APEER
-     * environment
+     * environment. With ADK_STAGING_STRATEGIES "MOVE" the file is moved instead and with "HARD_LINK" the output shares its data with your file, so it
+     * must not be changed afterwards
      *
      * @param key            The output key as defined in the module_specification.json of your module
      * @param outputFilePath The relative path to your file as you saved it
-     * @throws ApeerOutputException When the value could not be parsed to JSON
+     * @throws ApeerOutputException When the value could not be parsed to JSON or the file could not be copied. With ADK_ASYNC_FILE_OUTPUT enabled the file
+     *                              is copied in the background and copy errors are thrown by {@code finalizeModule()} instead
      */
     public void setFileOutput(String key, String outputFilePath) throws ApeerOutputException {
-        if (!outputFilePath.startsWith(OUTPUT_FILE_PREFIX)) {
-            var targetPath = OUTPUT_FILE_PREFIX + outputFilePath;
-            fileOutputWriter.moveFile(Path.of(outputFilePath), Path.of(targetPath));
+        outputs.checkOpen(key);
+        if (!outputFilePath.startsWith(outputFolder)) {
+            var targetPath = outputFolder + outputFilePath;
+            stageFiles(key, new Path[]{Path.of(outputFilePath)}, new Path[]{Path.of(targetPath)});
             outputFilePath = targetPath;
         }
 
-        try {
-            outputJson.put(key, outputFilePath);
-        } catch (JSONException ex) {
-            throw new ApeerOutputException("Could not set output \"" + key + "\"", ex);
-        }
+        putOutput(key, outputFilePath, true);
     }
 
     /**
      * Sets multiple file outputs that will be written to output_params_file. Also copies the files to the output folder of your module as required by the APEER
-     * environment
+     * environment. The files are copied in parallel, the number of concurrent copies can be set with the ADK_STAGING_PARALLELISM environment variable
+     * and defaults to the number of CPUs available to the container
      *
      * @param key             The output key as defined in the module_specification.json of your module
      * @param outputFilePaths The relative paths to your files as you saved them
-     * @throws ApeerOutputException When the value could not be parsed to JSON
+     * @throws ApeerOutputException When the value could not be parsed to JSON or when any of the files could not be copied. All failed files are reported
+     *                              together. With ADK_ASYNC_FILE_OUTPUT enabled the files are copied in the background and copy errors are thrown by
+     *                              {@code finalizeModule()} instead
      */
     public void setFileOutput(String key, String[] outputFilePaths) throws ApeerOutputException {
+        outputs.checkOpen(key);
         var targetFilePaths = new String[outputFilePaths.length];
+        var sources = new ArrayList<Path>();
+        var targets = new ArrayList<Path>();
         for (int i = 0; i < outputFilePaths.length; i++) {
             var filePath = outputFilePaths[i];
-            if (!filePath.startsWith("/output/")) {
-                var targetPath = "/output/" + filePath;
-                fileOutputWriter.moveFile(Path.of(filePath), Path.of(targetPath));
+            if (!filePath.startsWith(outputFolder)) {
+                var targetPath = outputFolder + filePath;
+                sources.add(Path.of(filePath));
+                targets.add(Path.of(targetPath));
                 targetFilePaths[i] = targetPath;
             } else {
                 targetFilePaths[i] = filePath;
             }
         }
 
-        setOutput(key, targetFilePaths);
+        if (!sources.isEmpty()) {
+            stageFiles(key, sources.toArray(new Path[0]), targets.toArray(new Path[0]));
+        }
+
+        putOutput(key, targetFilePaths, true);
+    }
+
+    /**
+     * Sets all files of a directory tree as file outputs, e.g. the tiles of an image pyramid. See
+     * {@link #setDirectoryOutput(String, String, String[], String[])}
+     *
+     * @param key           The output key as defined in the module_specification.json of your module
+     * @param directoryPath The relative path to your directory as you saved it
+     */
+    public void setDirectoryOutput(String key, String directoryPath) throws ApeerOutputException {
+        setDirectoryOutput(key, directoryPath, null, null);
     }
 
     /**
-     * Writes all output values as defined via {@code setOutput} and {@code setFileOutput} to the output params file
+     * Sets the files of a directory tree as file outputs, e.g. the tiles of an image pyramid. The tree is listed in parallel on the I/O executor and
+     * recreated in the output folder, the files are staged like those of {@link #setFileOutput(String, String[])}. The output value is the list of
+     * staged files sorted by path, which fits a "list[file]" output. The number of files staged and directories listed at the same time is limited by
+     * ADK_MAX_OPEN_FILES
      *
-     * @throws ApeerOutputException When the output params file could not be written
+     * @param key           The output key as defined in the module_specification.json of your module
+     * @param directoryPath The relative path to your directory as you saved it
+     * @param includes      Globs of the files to set as outputs, relative to the directory, e.g. "**.png" or "level_0/*", or null for all files
+     * @param excludes      Globs of the files and directories to skip, relative to the directory, or null
+     * @throws ApeerOutputException When the path is not a directory, it could not be listed completely or any of its files could not be copied
+     */
+    public void setDirectoryOutput(String key, String directoryPath, String[] includes, String[] excludes) throws ApeerOutputException {
+        outputs.checkOpen(key);
+        var walkStart = startTimer();
+        var directory = Path.of(directoryPath);
+        var files = new DirectoryWalker(includes, excludes, executors.getIoExecutor(), openFiles).walk(directory);
+        if (metricsEnabled) {
+            metrics.record(OUTPUT_WALK_PHASE, key, System.nanoTime() - walkStart, files.size());
+        }
+        log(LogLevel.INFO, () -> "Found " + files.size() + " files in \"" + directoryPath + "\" for \"" + key + "\"");
+
+        var staged = !directoryPath.startsWith(outputFolder);
+        var targetDirectory = staged ? Path.of(outputFolder + directoryPath) : directory;
+        var sources = new Path[files.size()];
+        var targets = new Path[files.size()];
+        var targetFilePaths = new String[files.size()];
+        for (int i = 0; i < files.size(); i++) {
+            sources[i] = directory.resolve(files.get(i));
+            targets[i] = targetDirectory.resolve(files.get(i));
+            targetFilePaths[i] = targets[i].toString();
+        }
+
+        if (staged && sources.length > 0) {
+            stageFiles(key, sources, targets);
+        }
+
+        putOutput(key, targetFilePaths, true);
+    }
+
+    /**
+     * Opens a file in the output folder of your module to write a file output directly, without saving it somewhere else first. The file is set as
+     * output once the returned stream is closed, unless writing to it failed
+     *
+     * @param key      The output key as defined in the module_specification.json of your module
+     * @param fileName The relative path of the file inside the output folder
+     * @return A stream to the new file. Wrap it in a {@link java.io.BufferedOutputStream} when writing many small chunks
+     * @throws ApeerOutputException When the file could not be created
+     */
+    public OutputStream openFileOutput(String key, String fileName) throws ApeerOutputException {
+        return Channels.newOutputStream(openFileOutputChannel(key, fileName));
+    }
+
+    /**
+     * Opens a file in the output folder of your module to write a file output directly, without saving it somewhere else first. The file is set as
+     * output once the returned channel is closed, unless writing to it failed
+     *
+     * @param key      The output key as defined in the module_specification.json of your module
+     * @param fileName The relative path of the file inside the output folder
+     * @return A channel to the new file
+     * @throws ApeerOutputException When the file could not be created
+     */
+    public WritableByteChannel openFileOutputChannel(String key, String fileName) throws ApeerOutputException {
+        outputs.checkOpen(key);
+        var targetPath = fileName.startsWith(outputFolder) ? fileName : outputFolder + fileName;
+        var channel = fileOutputWriter.openFile(Path.of(targetPath));
+        return new OutputFileChannel(channel, Digests.create(digestAlgorithm), (size, digest) -> {
+            putOutput(key, targetPath, true);
+            if (manifest != null) {
+                manifest.add(new StagedFile(null, Path.of(targetPath), null, size, digest));
+            }
+        });
+    }
+
+    /**
+     * Waits for the tasks the module submitted to {@link #getIoExecutor()} and for all file outputs that are still being copied, and writes all output
+     * values as defined via {@code setOutput} and {@code setFileOutput} to the output params file. The outputs are streamed to a temporary file that
+     * atomically replaces the output params file, so the next module never sees a partly written file. Outputs set by other threads after those tasks
+     * finished are rejected
+     *
+     * With metrics enabled, the metrics file is written afterwards. Failing to write it is logged but does not fail the module. Log messages that are still
+     * buffered are written before this method returns
+     *
+     * @throws ApeerOutputException When a file output could not be copied, the output params file could not be written or the module was already finalized
      */
     public void finalizeModule() throws ApeerOutputException {
-        var json = outputJson.toString();
-        fileOutputWriter.writeTextToFile("/output/" + outputParamsFile, json);
+        try {
+            writeOutputs();
+        } finally {
+            logger.flush();
+        }
     }
 
-    private void log(String message) {
-        System.out.println("[ADK] " + message);
+    /**
+     * Releases what the ADK still holds when the module failed before {@code finalizeModule()}: prefetching stops, file outputs that did not start
+     * staging are dropped and no more outputs are accepted. Nothing is written. Does nothing when the module was already finalized
+     */
+    void abort() {
+        try {
+            outputs.close();
+        } catch (ApeerOutputException ex) {
+            return;
+        }
+        try {
+            if (prefetcher != null) {
+                prefetcher.cancel();
+            }
+            fileStager.cancelPending();
+        } finally {
+            logger.flush();
+        }
+    }
+
+    /**
+     * Waits for the tasks the module submitted to {@link #getIoExecutor()}, so the outputs they set are written and their files are complete
+     */
+    private void awaitModuleTasks() throws ApeerOutputException {
+        ModuleExecutor executor;
+        synchronized (this) {
+            executor = moduleIoExecutor;
+        }
+        if (executor == null) {
+            return;
+        }
+        try {
+            executor.awaitTasks();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ApeerOutputException("Interrupted while waiting for the I/O tasks of the module", ex);
+        }
+    }
+
+    /**
+     * @return true once {@code finalizeModule()} was called
+     */
+    boolean isFinalized() {
+        return outputs.isClosed();
+    }
+
+    private void writeOutputs() throws ApeerOutputException {
+        awaitModuleTasks();
+        var values = outputs.close();
+        if (prefetcher != null) {
+            // also stops prefetching, so it does not compete with staging for the disk
+            prefetcher.report(metrics);
+        }
+        var awaitStart = startTimer();
+        try {
+            recordStagedFiles(fileStager.awaitPending());
+        } finally {
+            executors.report(executorUsage, metrics, logger);
+        }
+
+        if (manifest != null) {
+            if (digestOutputs) {
+                manifest.addDigestsTo(values);
+            }
+            // written before the output params file, which tells the next module that all outputs are complete
+            fileOutputWriter.writeJsonToFile(companionFile("manifest"), manifest::writeTo);
+        }
+
+        if (outputReceiver != null) {
+            // handed over as objects, nothing is serialized
+            var receiveStart = startTimer();
+            outputReceiver.accept(values);
+            if (metricsEnabled) {
+                metrics.record(FINALIZE_AWAIT_PHASE, null, receiveStart - awaitStart, 0);
+                flushMetrics();
+            }
+            return;
+        }
+
+        if (!metricsEnabled) {
+            fileOutputWriter.writeJsonToFile(outputFolder + outputParamsFile, writer -> new OutputParamsWriter(writer).writeObject(values));
+            return;
+        }
+
+        var writeStart = System.nanoTime();
+        metrics.record(FINALIZE_AWAIT_PHASE, null, writeStart - awaitStart, 0);
+        fileOutputWriter.writeJsonToFile(outputFolder + outputParamsFile, writer -> {
+            // the values are streamed to the file, so serializing includes the time spent in the writer until its buffer is flushed
+            var serializeStart = System.nanoTime();
+            var countingWriter = new CountingWriter(writer);
+            new OutputParamsWriter(countingWriter).writeObject(values);
+            metrics.record(FINALIZE_SERIALIZE_PHASE, null, System.nanoTime() - serializeStart, countingWriter.count);
+        });
+        metrics.record(FINALIZE_WRITE_PHASE, null, System.nanoTime() - writeStart, 0);
+        flushMetrics();
+    }
+
+    private void flushMetrics() {
+        try {
+            metrics.flush();
+        } catch (ApeerOutputException | RuntimeException ex) {
+            log(LogLevel.WARN, () -> "Could not write metrics: " + ex.getMessage());
+        }
+    }
+
+    private static IFileOutput createFileOutput(ApeerSettings settings) {
+        if (settings.getCacheFolder() == null) {
+            return new OutputJsonFileWriter(settings.getFsyncPolicy(), settings.getDigestAlgorithm(), settings.getStagingStrategies());
+        }
+
+        // the cache hashes every file anyway, so it reports the checksums instead of hashing them a second time while staging
+        var digestAlgorithm = settings.getDigestAlgorithm();
+        var fileOutput = new OutputJsonFileWriter(settings.getFsyncPolicy(), null, getCacheableStrategies(settings.getStagingStrategies()));
+        return new CachingFileOutput(fileOutput, settings.getCacheFolder(), settings.getCacheMaxSize(),
+                digestAlgorithm != null ? digestAlgorithm : DEFAULT_CACHE_DIGEST, digestAlgorithm != null);
+    }
+
+    /**
+     * Hard links share their data with the module's file, which could change the cached content later, so they are replaced by copies
+     */
+    private static StagingStrategy[] getCacheableStrategies(StagingStrategy[] strategies) {
+        var cacheable = Arrays.stream(strategies).filter(strategy -> strategy != StagingStrategy.HARD_LINK).toArray(StagingStrategy[]::new);
+        return cacheable.length > 0 ? cacheable : new StagingStrategy[]{StagingStrategy.TRANSFER};
+    }
+
+    /**
+     * Collects the files of the inputs to prefetch. With ADK_PREFETCH "true" these are all string inputs that name an existing file, otherwise the
+     * strings of the listed inputs
+     */
+    private InputPrefetcher createPrefetcher(ApeerSettings settings) {
+        var keys = settings.getPrefetchKeys();
+        if (keys == null) {
+            return null;
+        }
+
+        var files = new LinkedHashMap<String, List<Path>>();
+        for (var key : keys.isEmpty() ? inputJson.keys() : keys) {
+            if (key.equals(OUTPUT_PARAMS_FILE_KEY) || !inputJson.holdsStrings(key)) {
+                continue;
+            }
+            var paths = new ArrayList<Path>();
+            var value = inputJson.get(key);
+            // inputs handed over as objects may hold their files as String[] or List instead of a JSONArray
+            var items = value instanceof String ? new JSONArray().put(value) : inputJson.getJSONArray(key);
+            for (var item : items) {
+                if (item instanceof String) {
+                    try {
+                        var path = Path.of((String) item);
+                        if (!keys.isEmpty() || Files.isRegularFile(path)) {
+                            paths.add(path);
+                        }
+                    } catch (InvalidPathException ex) {
+                        // not a file
+                    }
+                }
+            }
+            if (!paths.isEmpty()) {
+                files.put(key, paths);
+            }
+        }
+
+        log(LogLevel.DEBUG, () -> "Prefetching the files of inputs " + files.keySet());
+        return new InputPrefetcher(files, settings.getPrefetchMaxSize(), logger);
+    }
+
+    private static IMetricsSink createMetricsSink(ApeerSettings settings, IFileOutput fileOutput, String filePath) {
+        if (!settings.isMetricsEnabled()) {
+            return NoMetricsSink.INSTANCE;
+        }
+        return new JsonFileMetricsSink(fileOutput, filePath);
+    }
+
+    /**
+     * @return The path of a file written next to the output params file, for "out.json" and "metrics" it is "out.metrics.json"
+     */
+    private String companionFile(String name) {
+        var baseName = outputParamsFile.endsWith(".json") ? outputParamsFile.substring(0, outputParamsFile.length() - 5) : outputParamsFile;
+        return outputFolder + baseName + "." + name + ".json";
+    }
+
+    private static IInputSource createInputSource(ISystem system) {
+        var inputFile = system.getenv(WFE_INPUT_JSON_FILE_KEY);
+        if (inputFile == null || inputFile.isBlank()) {
+            return new EnvironmentInputSource(system, WFE_INPUT_JSON_KEY);
+        }
+        if (inputFile.equals("-")) {
+            return new StreamInputSource(System.in, "stdin");
+        }
+        return new FileInputSource(Path.of(inputFile));
+    }
+
+    private void stageFiles(String key, Path[] sources, Path[] targets) throws ApeerOutputException {
+        if (asyncFileOutput) {
+            fileStager.stageAsync(key, sources, targets);
+        } else {
+            recordStagedFiles(fileStager.stage(key, sources, targets));
+        }
+    }
+
+    private void recordStagedFiles(StagedFile[] stagedFiles) {
+        for (var stagedFile : stagedFiles) {
+            if (manifest != null) {
+                manifest.add(stagedFile);
+            }
+            log(LogLevel.INFO, () -> "Staged " + stagedFile);
+        }
+    }
+
+    private void log(LogLevel level, Supplier<String> message) {
+        logger.log(level, message);
+    }
+
+    private static final class CountingWriter extends FilterWriter {
+        private long count;
+
+        private CountingWriter(Writer writer) {
+            super(writer);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            out.write(c);
+            count++;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);
+            count += length;
+        }
+
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            out.write(text, offset, length);
+            count += length;
+        }
     }
 }
@@ -4,4 +4,8 @@ public class ApeerInputException extends ApeerException {
     public ApeerInputException(String message) {
         super(message);
     }
+
+    public ApeerInputException(String message, Exception inner) {
+        super(message, inner);
+    }
 }
@@ -1,5 +1,7 @@
 package com.apeer.sdk;
 
 public class ApeerOutputException extends ApeerException {
+    public ApeerOutputException(String message) { super(message); }
+
     public ApeerOutputException(String message, Exception inner) { super(message, inner); }
 }
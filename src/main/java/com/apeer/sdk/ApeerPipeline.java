@@ -0,0 +1,297 @@
+package com.apeer.sdk;
+
+import org.apache.commons.lang3.Validate;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Runs a workflow of modules in one process without the APEER backend, e.g. to profile or load test it locally. The outputs of a stage are handed to
+ * the inputs of the next stages as objects, nothing is serialized to JSON or written to an output params file. File outputs are handed over by path
+ * without copying them, so a module must not delete or change a file after it set it as output. Stages that do not depend on each other run at the
+ * same time
+ *
+ * <pre>{@code
+ * var pipeline = new ApeerPipeline(Path.of("work"));
+ * pipeline.addStage("threshold", ThresholdModule::run, Map.of("input_image", "/data/cells.tif", "threshold", 128));
+ * pipeline.addStage("measure", MeasureModule::run, Map.of("mask", ApeerPipeline.output("threshold", "mask")));
+ * var results = pipeline.run();
+ * }</pre>
+ */
+public class ApeerPipeline {
+    private final ISystem system;
+    private final Path workFolder;
+    private final int concurrency;
+    private final ILogger logger;
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+
+    /**
+     * Creates a pipeline that runs as many stages at the same time as the container has CPUs
+     *
+     * @param workFolder The folder with one output folder per stage, for the files that modules write directly
+     */
+    public ApeerPipeline(Path workFolder) throws ApeerEnvironmentException {
+        this(workFolder, ContainerResources.current().getCpus());
+    }
+
+    /**
+     * @param workFolder  The folder with one output folder per stage, for the files that modules write directly
+     * @param concurrency The number of stages that run at the same time
+     */
+    public ApeerPipeline(Path workFolder, int concurrency) throws ApeerEnvironmentException {
+        this(new SystemFacade(), workFolder, concurrency);
+    }
+
+    ApeerPipeline(ISystem system, Path workFolder, int concurrency) throws ApeerEnvironmentException {
+        Validate.notNull(system);
+        Validate.notNull(workFolder);
+        Validate.isTrue(concurrency > 0, "concurrency must be positive");
+
+        this.system = system;
+        this.workFolder = workFolder;
+        this.concurrency = concurrency;
+        this.logger = ConsoleLogger.standardOutput(ApeerSettings.fromSystem(system));
+    }
+
+    /**
+     * Refers to an output of an earlier stage in the inputs of a stage
+     *
+     * @param stage The name of the earlier stage
+     * @param key   The output key of the module of that stage
+     */
+    public static StageOutput output(String stage, String key) {
+        return new StageOutput(stage, key);
+    }
+
+    /**
+     * Adds a stage that runs after all stages it takes outputs from
+     *
+     * @param name   The name of the stage, unique within the pipeline
+     * @param module The module of the stage
+     * @param inputs The inputs of the module by key, either values as they would appear in WFE_INPUT_JSON or outputs of earlier stages, see
+     *               {@link #output(String, String)}
+     * @return This pipeline
+     * @throws IllegalArgumentException When the name is already taken, an input refers to a stage that was not added before or is no JSON value
+     */
+    public ApeerPipeline addStage(String name, IApeerModule module, Map<String, ?> inputs) {
+        Validate.notBlank(name);
+        Validate.notNull(module);
+        Validate.notNull(inputs);
+        Validate.isTrue(!stages.containsKey(name), "Stage \"%s\" was already added", name);
+
+        var dependencies = new ArrayList<String>();
+        for (var input : inputs.entrySet()) {
+            var value = input.getValue();
+            if (value instanceof StageOutput) {
+                var stage = ((StageOutput) value).stage;
+                Validate.isTrue(stages.containsKey(stage), "Input \"%s\" of stage \"%s\" refers to stage \"%s\" which was not added before", input.getKey(),
+                        name, stage);
+                if (!dependencies.contains(stage)) {
+                    dependencies.add(stage);
+                }
+            } else {
+                try {
+                    JSONObject.testValidity(value);
+                } catch (JSONException ex) {
+                    throw new IllegalArgumentException("Input \"" + input.getKey() + "\" of stage \"" + name + "\" is not a valid JSON value", ex);
+                }
+            }
+        }
+
+        stages.put(name, new Stage(name, module, new HashMap<>(inputs), dependencies));
+        return this;
+    }
+
+    /**
+     * Runs all stages and waits for them. A stage that fails does not stop stages that do not depend on it, stages that depend on it are skipped
+     *
+     * @return The results of all stages by name, in the order the stages were added
+     */
+    public Map<String, StageResult> run() {
+        var count = new AtomicInteger();
+        var executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            var thread = new Thread(runnable, "adk-pipeline-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        var start = System.nanoTime();
+        var results = new ConcurrentHashMap<String, StageResult>();
+        var futures = new HashMap<String, CompletableFuture<Void>>();
+        try {
+            for (var stage : stages.values()) {
+                var dependencies = stage.dependencies.stream().map(futures::get).toArray(CompletableFuture<?>[]::new);
+                futures.put(stage.name, CompletableFuture.allOf(dependencies).thenRunAsync(() -> results.put(stage.name, runStage(stage, results)), executor));
+            }
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+
+        var ordered = new LinkedHashMap<String, StageResult>();
+        stages.keySet().forEach(name -> ordered.put(name, results.get(name)));
+        log(LogLevel.INFO, () -> "Pipeline finished after " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        logger.flush();
+        return ordered;
+    }
+
+    private StageResult runStage(Stage stage, Map<String, StageResult> results) {
+        var start = System.nanoTime();
+        var inputs = new HashMap<String, Object>();
+        for (var input : stage.inputs.entrySet()) {
+            var value = input.getValue();
+            if (!(value instanceof StageOutput)) {
+                inputs.put(input.getKey(), value instanceof Path ? value.toString() : value);
+                continue;
+            }
+
+            var output = (StageOutput) value;
+            var dependency = results.get(output.stage);
+            if (!dependency.isSucceeded()) {
+                log(LogLevel.WARN, () -> "Stage \"" + stage.name + "\" skipped because stage \"" + output.stage + "\" did not succeed");
+                return new StageResult(stage.name, null, "Skipped because stage \"" + output.stage + "\" did not succeed", 0);
+            }
+            if (!dependency.outputs.containsKey(output.key)) {
+                return failed(stage, start, "Stage \"" + output.stage + "\" has no output \"" + output.key + "\"");
+            }
+            inputs.put(input.getKey(), dependency.outputs.get(output.key));
+        }
+        inputs.put("WFE_output_params_file", stage.name + ".json");
+
+        ApeerDevKit adk = null;
+        try {
+            var outputFolder = workFolder.resolve(stage.name).toString();
+            ISystem stageSystem = key -> key.equals(ApeerSettings.OUTPUT_DIR_KEY) ? outputFolder : system.getenv(key);
+            var fileOutput = new InMemoryFileOutput();
+            var outputs = new AtomicReference<Map<String, Object>>();
+            adk = new ApeerDevKit(stageSystem, fileOutput, null, inputs, outputs::set, null,
+                    new PrefixedLogger("[" + stage.name + "] ", ConsoleLogger.standardOutput(ApeerSettings.fromSystem(stageSystem))));
+            stage.module.run(adk);
+            if (!adk.isFinalized()) {
+                adk.finalizeModule();
+            }
+
+            var values = new HashMap<String, Object>();
+            outputs.get().forEach((key, value) -> values.put(key, fileOutput.resolve(value)));
+            var result = new StageResult(stage.name, Collections.unmodifiableMap(values), null, System.nanoTime() - start);
+            log(LogLevel.INFO, () -> "Stage \"" + stage.name + "\" succeeded after " + result.getNanos() / 1_000_000 + " ms");
+            return result;
+        } catch (Exception ex) {
+            return failed(stage, start, String.valueOf(ex.getMessage()));
+        } finally {
+            // a stage that failed before finalizing must not keep prefetching or staging while the other stages run
+            if (adk != null) {
+                adk.abort();
+            }
+        }
+    }
+
+    private StageResult failed(Stage stage, long start, String error) {
+        var result = new StageResult(stage.name, null, error, System.nanoTime() - start);
+        log(LogLevel.ERROR, () -> "Stage \"" + stage.name + "\" failed after " + result.getNanos() / 1_000_000 + " ms: " + error);
+        return result;
+    }
+
+    private void log(LogLevel level, Supplier<String> message) {
+        logger.log(level, message);
+    }
+
+    /**
+     * An output of an earlier stage, see {@link #output(String, String)}
+     */
+    public static final class StageOutput {
+        private final String stage;
+        private final String key;
+
+        private StageOutput(String stage, String key) {
+            Validate.notBlank(stage);
+            Validate.notBlank(key);
+
+            this.stage = stage;
+            this.key = key;
+        }
+
+        @Override
+        public String toString() {
+            return stage + "." + key;
+        }
+    }
+
+    /**
+     * The outcome of one stage
+     */
+    public static final class StageResult {
+        private final String name;
+        private final Map<String, Object> outputs;
+        private final String error;
+        private final long nanos;
+
+        private StageResult(String name, Map<String, Object> outputs, String error, long nanos) {
+            this.name = name;
+            this.outputs = outputs;
+            this.error = error;
+            this.nanos = nanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isSucceeded() {
+            return error == null;
+        }
+
+        /**
+         * @return Why the stage failed or was skipped, or null when it succeeded
+         */
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * @return The outputs of the module by key with the original paths of file outputs, or null when the stage did not succeed
+         */
+        public Map<String, Object> getOutputs() {
+            return outputs;
+        }
+
+        /**
+         * @return The time from starting the module until its outputs were handed over, 0 for skipped stages
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Stage \"" + name + "\" " + (isSucceeded() ? "succeeded" : "failed: " + error) + " after " + nanos / 1_000_000 + " ms";
+        }
+    }
+
+    private static final class Stage {
+        private final String name;
+        private final IApeerModule module;
+        private final Map<String, Object> inputs;
+        private final List<String> dependencies;
+
+        private Stage(String name, IApeerModule module, Map<String, Object> inputs, List<String> dependencies) {
+            this.name = name;
+            this.module = module;
+            this.inputs = inputs;
+            this.dependencies = dependencies;
+        }
+    }
+}
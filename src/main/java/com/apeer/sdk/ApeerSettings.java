@@ -0,0 +1,440 @@
+package com.apeer.sdk;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tuning knobs of the ADK. All settings are read from environment variables so they can be changed per module container without touching code
+ */
+final class ApeerSettings {
+    static final String STAGING_PARALLELISM_KEY = "ADK_STAGING_PARALLELISM";
+    static final String STAGING_STRATEGIES_KEY = "ADK_STAGING_STRATEGIES";
+    static final String ASYNC_FILE_OUTPUT_KEY = "ADK_ASYNC_FILE_OUTPUT";
+    static final String FSYNC_KEY = "ADK_FSYNC";
+    static final String METRICS_KEY = "ADK_METRICS";
+    static final String LOG_LEVEL_KEY = "ADK_LOG_LEVEL";
+    static final String LOG_MAX_LENGTH_KEY = "ADK_LOG_MAX_LENGTH";
+    static final String OUTPUT_DIR_KEY = "ADK_OUTPUT_DIR";
+    static final String DIGEST_KEY = "ADK_DIGEST";
+    static final String DIGEST_OUTPUTS_KEY = "ADK_DIGEST_OUTPUTS";
+    static final String CACHE_DIR_KEY = "ADK_CACHE_DIR";
+    static final String CACHE_MAX_SIZE_KEY = "ADK_CACHE_MAX_SIZE";
+    static final String PREFETCH_KEY = "ADK_PREFETCH";
+    static final String PREFETCH_MAX_SIZE_KEY = "ADK_PREFETCH_MAX_SIZE";
+    static final String COMPUTE_PARALLELISM_KEY = "ADK_COMPUTE_PARALLELISM";
+    static final String IO_PARALLELISM_KEY = "ADK_IO_PARALLELISM";
+    static final String VIRTUAL_THREADS_KEY = "ADK_VIRTUAL_THREADS";
+    static final String MAX_OPEN_FILES_KEY = "ADK_MAX_OPEN_FILES";
+    static final String CHUNK_SIZE_KEY = "ADK_CHUNK_SIZE";
+    static final String CHUNK_BUFFERS_KEY = "ADK_CHUNK_BUFFERS";
+    private static final long DEFAULT_CACHE_MAX_SIZE = 10L << 30;
+    private static final long DEFAULT_PREFETCH_MAX_SIZE = 1L << 30;
+    private static final int DEFAULT_LOG_MAX_LENGTH = 2000;
+    private static final int DEFAULT_MAX_OPEN_FILES = 256;
+    private static final long DEFAULT_CHUNK_SIZE = 4L << 20;
+    private static final long MAX_CHUNK_SIZE = 1L << 30;
+    /**
+     * Chunks are aligned to the page size, so positional reads start on page boundaries
+     */
+    private static final int CHUNK_ALIGNMENT = 4096;
+
+    private final int stagingParallelism;
+    private final StagingStrategy[] stagingStrategies;
+    private final boolean asyncFileOutput;
+    private final FsyncPolicy fsyncPolicy;
+    private final boolean metricsEnabled;
+    private final LogLevel logLevel;
+    private final int logMaxLength;
+    private final String outputFolder;
+    private final String digestAlgorithm;
+    private final boolean digestOutputs;
+    private final Path cacheFolder;
+    private final long cacheMaxSize;
+    private final List<String> prefetchKeys;
+    private final long prefetchMaxSize;
+    private final int computeParallelism;
+    private final int ioParallelism;
+    private final boolean virtualThreads;
+    private final int maxOpenFiles;
+    private final int chunkSize;
+    private final int chunkBuffers;
+
+    private ApeerSettings(int stagingParallelism, StagingStrategy[] stagingStrategies, boolean asyncFileOutput, FsyncPolicy fsyncPolicy,
+                          boolean metricsEnabled, LogLevel logLevel, int logMaxLength, String outputFolder, String digestAlgorithm,
+                          boolean digestOutputs, Path cacheFolder, long cacheMaxSize, List<String> prefetchKeys, long prefetchMaxSize,
+                          int computeParallelism, int ioParallelism, boolean virtualThreads, int maxOpenFiles,
+                          int chunkSize, int chunkBuffers) {
+        this.stagingParallelism = stagingParallelism;
+        this.stagingStrategies = stagingStrategies;
+        this.asyncFileOutput = asyncFileOutput;
+        this.fsyncPolicy = fsyncPolicy;
+        this.metricsEnabled = metricsEnabled;
+        this.logLevel = logLevel;
+        this.logMaxLength = logMaxLength;
+        this.outputFolder = outputFolder;
+        this.digestAlgorithm = digestAlgorithm;
+        this.digestOutputs = digestOutputs;
+        this.cacheFolder = cacheFolder;
+        this.cacheMaxSize = cacheMaxSize;
+        this.prefetchKeys = prefetchKeys;
+        this.prefetchMaxSize = prefetchMaxSize;
+        this.computeParallelism = computeParallelism;
+        this.ioParallelism = ioParallelism;
+        this.virtualThreads = virtualThreads;
+        this.maxOpenFiles = maxOpenFiles;
+        this.chunkSize = chunkSize;
+        this.chunkBuffers = chunkBuffers;
+    }
+
+    static ApeerSettings fromSystem(ISystem system) throws ApeerEnvironmentException {
+        var resources = ContainerResources.current();
+        var chunkSize = readChunkSize(system);
+        return new ApeerSettings(
+                readParallelism(system, STAGING_PARALLELISM_KEY, resources.getCpus()),
+                readStagingStrategies(system),
+                readBoolean(system, ASYNC_FILE_OUTPUT_KEY),
+                readEnum(system, FSYNC_KEY, FsyncPolicy.class, FsyncPolicy.NONE),
+                readBoolean(system, METRICS_KEY),
+                readEnum(system, LOG_LEVEL_KEY, LogLevel.class, LogLevel.INFO),
+                readPositiveInt(system, LOG_MAX_LENGTH_KEY, DEFAULT_LOG_MAX_LENGTH),
+                readOutputFolder(system),
+                readDigestAlgorithm(system),
+                readBoolean(system, DIGEST_OUTPUTS_KEY),
+                readPath(system, CACHE_DIR_KEY),
+                readSize(system, CACHE_MAX_SIZE_KEY, DEFAULT_CACHE_MAX_SIZE),
+                readPrefetchKeys(system),
+                readSize(system, PREFETCH_MAX_SIZE_KEY, DEFAULT_PREFETCH_MAX_SIZE),
+                readParallelism(system, COMPUTE_PARALLELISM_KEY, resources.getCpus()),
+                readParallelism(system, IO_PARALLELISM_KEY, resources.getIoParallelism()),
+                readBoolean(system, VIRTUAL_THREADS_KEY, true),
+                readPositiveInt(system, MAX_OPEN_FILES_KEY, DEFAULT_MAX_OPEN_FILES),
+                chunkSize,
+                readParallelism(system, CHUNK_BUFFERS_KEY, resources.getChunkBuffers(chunkSize)));
+    }
+
+    /**
+     * @return The number of files that are staged to the output folder at the same time
+     */
+    int getStagingParallelism() {
+        return stagingParallelism;
+    }
+
+    /**
+     * @return The strategies {@link OutputJsonFileWriter} tries in order to stage a file
+     */
+    StagingStrategy[] getStagingStrategies() {
+        return stagingStrategies.clone();
+    }
+
+    /**
+     * @return true when {@code setFileOutput} should return before the files are staged and {@code finalizeModule} waits for them
+     */
+    boolean isAsyncFileOutput() {
+        return asyncFileOutput;
+    }
+
+    /**
+     * @return How the output params file is forced to disk
+     */
+    FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    /**
+     * @return true when the timings of the ADK should be written to a metrics file next to the output params file
+     */
+    boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    /**
+     * @return The lowest level of messages the ADK writes to the console
+     */
+    LogLevel getLogLevel() {
+        return logLevel;
+    }
+
+    /**
+     * @return The number of characters after which log messages are truncated
+     */
+    int getLogMaxLength() {
+        return logMaxLength;
+    }
+
+    /**
+     * @return The folder file outputs and the output params file are written to, always ending with "/"
+     */
+    String getOutputFolder() {
+        return outputFolder;
+    }
+
+    /**
+     * @return The algorithm of the checksums of staged files or null when no checksums and manifest should be written
+     */
+    String getDigestAlgorithm() {
+        return digestAlgorithm;
+    }
+
+    /**
+     * @return true when the checksums of file outputs should also be added to the output params
+     */
+    boolean isDigestOutputs() {
+        return digestOutputs;
+    }
+
+    /**
+     * @return The folder of the content-addressed cache of staged files or null when files are not cached
+     */
+    Path getCacheFolder() {
+        return cacheFolder;
+    }
+
+    /**
+     * @return The size in bytes of all cached files after which the least recently used ones are evicted
+     */
+    long getCacheMaxSize() {
+        return cacheMaxSize;
+    }
+
+    /**
+     * @return The input keys whose files are prefetched, an empty list to prefetch every input that is an existing file or null when nothing is
+     * prefetched
+     */
+    List<String> getPrefetchKeys() {
+        return prefetchKeys;
+    }
+
+    /**
+     * @return The number of bytes after which prefetching stops
+     */
+    long getPrefetchMaxSize() {
+        return prefetchMaxSize;
+    }
+
+    /**
+     * @return The number of threads of the compute pool shared by the module and the ADK
+     */
+    int getComputeParallelism() {
+        return computeParallelism;
+    }
+
+    /**
+     * @return The number of platform threads of the I/O executor shared by the module and the ADK
+     */
+    int getIoParallelism() {
+        return ioParallelism;
+    }
+
+    /**
+     * @return true when the I/O executor should use virtual threads if the JVM supports them
+     */
+    boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return The number of files the ADK stages and directories it lists at the same time
+     */
+    int getMaxOpenFiles() {
+        return maxOpenFiles;
+    }
+
+    /**
+     * @return The size of the chunks file inputs are read in, a multiple of the page size
+     */
+    int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @return The number of chunk buffers, which bounds the memory of reading file inputs in chunks
+     */
+    int getChunkBuffers() {
+        return chunkBuffers;
+    }
+
+    private static <E extends Enum<E>> E readEnum(ISystem system, String key, Class<E> type, E defaultValue) throws ApeerEnvironmentException {
+        var value = system.getenv(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new ApeerEnvironmentException("\"" + key + "\" must be one of " + Arrays.toString(type.getEnumConstants()) + " but was \"" + value + "\"", ex);
+        }
+    }
+
+    private static boolean readBoolean(ISystem system, String key) throws ApeerEnvironmentException {
+        return readBoolean(system, key, false);
+    }
+
+    private static boolean readBoolean(ISystem system, String key, boolean defaultValue) throws ApeerEnvironmentException {
+        var value = system.getenv(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        if (value.trim().equalsIgnoreCase("false")) {
+            return false;
+        }
+        if (value.trim().equalsIgnoreCase("true")) {
+            return true;
+        }
+        throw new ApeerEnvironmentException("\"" + key + "\" must be \"true\" or \"false\" but was \"" + value + "\"");
+    }
+
+    /**
+     * Reads a comma separated list of {@link StagingStrategy} names, e.g. "MOVE,TRANSFER". Defaults to copying, because a hard link
+     * would let the module change its output after it was set
+     */
+    private static StagingStrategy[] readStagingStrategies(ISystem system) throws ApeerEnvironmentException {
+        var value = system.getenv(STAGING_STRATEGIES_KEY);
+        if (value == null || value.isBlank()) {
+            return new StagingStrategy[]{StagingStrategy.TRANSFER};
+        }
+
+        var names = value.split(",");
+        var strategies = new StagingStrategy[names.length];
+        for (int i = 0; i < names.length; i++) {
+            try {
+                strategies[i] = StagingStrategy.valueOf(names[i].trim().toUpperCase());
+            } catch (IllegalArgumentException ex) {
+                throw new ApeerEnvironmentException("\"" + STAGING_STRATEGIES_KEY + "\" contains unknown strategy \"" + names[i].trim() + "\"", ex);
+            }
+        }
+        return strategies;
+    }
+
+    /**
+     * Reads "true" to prefetch all file inputs or a comma separated list of input keys, e.g. "input_image,mask"
+     */
+    private static List<String> readPrefetchKeys(ISystem system) {
+        var value = system.getenv(PREFETCH_KEY);
+        if (value == null || value.isBlank() || value.trim().equalsIgnoreCase("false")) {
+            return null;
+        }
+        if (value.trim().equalsIgnoreCase("true")) {
+            return List.of();
+        }
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(key -> !key.isEmpty())
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    private static String readDigestAlgorithm(ISystem system) throws ApeerEnvironmentException {
+        var value = system.getenv(DIGEST_KEY);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Digests.create(value.trim()).getAlgorithm();
+        } catch (IllegalArgumentException ex) {
+            throw new ApeerEnvironmentException("\"" + DIGEST_KEY + "\" must be a digest algorithm of the JVM, e.g. SHA-256, but was \"" + value + "\"", ex);
+        }
+    }
+
+    private static Path readPath(ISystem system, String key) throws ApeerEnvironmentException {
+        var value = system.getenv(key);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Path.of(value.trim());
+        } catch (InvalidPathException ex) {
+            throw new ApeerEnvironmentException("\"" + key + "\" must be a path but was \"" + value + "\"", ex);
+        }
+    }
+
+    /**
+     * Reads ADK_CHUNK_SIZE like {@link #readSize(ISystem, String, long)}, at most 1G and rounded up to a multiple of 4 KiB
+     */
+    private static int readChunkSize(ISystem system) throws ApeerEnvironmentException {
+        var size = readSize(system, CHUNK_SIZE_KEY, DEFAULT_CHUNK_SIZE);
+        if (size > MAX_CHUNK_SIZE) {
+            throw new ApeerEnvironmentException("\"" + CHUNK_SIZE_KEY + "\" must be at most 1G but was " + size);
+        }
+        return (int) ((size + CHUNK_ALIGNMENT - 1) / CHUNK_ALIGNMENT * CHUNK_ALIGNMENT);
+    }
+
+    /**
+     * Reads a size in bytes with an optional binary unit, e.g. "500M" or "20G"
+     */
+    private static long readSize(ISystem system, String key, long defaultValue) throws ApeerEnvironmentException {
+        var value = system.getenv(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+
+        var number = value.trim().toUpperCase();
+        var shift = 0;
+        if (number.endsWith("K")) {
+            shift = 10;
+        } else if (number.endsWith("M")) {
+            shift = 20;
+        } else if (number.endsWith("G")) {
+            shift = 30;
+        } else if (number.endsWith("T")) {
+            shift = 40;
+        }
+        if (shift > 0) {
+            number = number.substring(0, number.length() - 1).trim();
+        }
+
+        try {
+            var size = Long.parseLong(number);
+            if (size < 1 || size > Long.MAX_VALUE >> shift) {
+                throw new ApeerEnvironmentException("\"" + key + "\" must be a positive size but was \"" + value + "\"");
+            }
+            return size << shift;
+        } catch (NumberFormatException ex) {
+            throw new ApeerEnvironmentException("\"" + key + "\" must be a size in bytes, optionally followed by K, M, G or T, but was \"" + value + "\"", ex);
+        }
+    }
+
+    private static String readOutputFolder(ISystem system) {
+        var value = system.getenv(OUTPUT_DIR_KEY);
+        if (value == null || value.isBlank()) {
+            return ApeerDevKit.OUTPUT_FILE_PREFIX;
+        }
+        value = value.trim();
+        return value.endsWith("/") ? value : value + "/";
+    }
+
+    private static int readPositiveInt(ISystem system, String key, int defaultValue) throws ApeerEnvironmentException {
+        var value = system.getenv(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        return parsePositiveInt(key, value);
+    }
+
+    /**
+     * Reads a positive parallelism from the environment
+     *
+     * @param auto The parallelism for a missing value or "auto", derived from the limits of the container
+     */
+    private static int readParallelism(ISystem system, String key, int auto) throws ApeerEnvironmentException {
+        var value = system.getenv(key);
+        if (value == null || value.isBlank() || value.trim().equalsIgnoreCase("auto")) {
+            return auto;
+        }
+
+        return parsePositiveInt(key, value);
+    }
+
+    private static int parsePositiveInt(String key, String value) throws ApeerEnvironmentException {
+        try {
+            var number = Integer.parseInt(value.trim());
+            if (number < 1) {
+                throw new ApeerEnvironmentException("\"" + key + "\" must be at least 1 but was " + number);
+            }
+            return number;
+        } catch (NumberFormatException ex) {
+            throw new ApeerEnvironmentException("\"" + key + "\" must be a positive number but was \"" + value + "\"", ex);
+        }
+    }
+}
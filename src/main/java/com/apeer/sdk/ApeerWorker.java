@@ -0,0 +1,317 @@
+package com.apeer.sdk;
+
+import org.apache.commons.lang3.Validate;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Runs a module for many jobs in one process, so JVM startup and JIT warm-up are paid once instead of once per job. Every job gets its own
+ * {@link ApeerDevKit} with the job's inputs and writes to the job's own output folder, see {@link WorkerJob} for the job descriptor. The worker and
+ * the ADKs of its jobs log to stderr
+ */
+public class ApeerWorker {
+    private static final String JOB_SUFFIX = ".json";
+    private static final String RUNNING_SUFFIX = ".running";
+    private static final String DONE_SUFFIX = ".done";
+    private static final String FAILED_SUFFIX = ".failed";
+    private static final long SPOOL_POLL_SECONDS = 1;
+
+    private final ISystem system;
+    private final IApeerModule module;
+    private final int concurrency;
+    private final ILogger logger;
+
+    /**
+     * Creates a worker that runs one job at a time
+     */
+    public ApeerWorker(IApeerModule module) throws ApeerEnvironmentException {
+        this(module, 1);
+    }
+
+    /**
+     * @param concurrency The number of jobs that run at the same time
+     */
+    public ApeerWorker(IApeerModule module, int concurrency) throws ApeerEnvironmentException {
+        this(new SystemFacade(), module, concurrency);
+    }
+
+    ApeerWorker(ISystem system, IApeerModule module, int concurrency) throws ApeerEnvironmentException {
+        Validate.notNull(system);
+        Validate.notNull(module);
+        Validate.isTrue(concurrency > 0, "concurrency must be positive");
+
+        this.system = system;
+        this.module = module;
+        this.concurrency = concurrency;
+        this.logger = createLogger(ApeerSettings.fromSystem(system));
+    }
+
+    /**
+     * Runs the jobs of a stream with one job descriptor per line, e.g. stdin, until the stream ends. Blank lines are skipped
+     *
+     * @param jobs    The job descriptors
+     * @param results Receives one line per finished job like {@code {"id":"job-1","status":"succeeded","millis":12}}, in the order the jobs finish
+     * @return The number of failed jobs
+     * @throws IOException When the job descriptors could not be read
+     */
+    public int runJobLines(BufferedReader jobs, PrintStream results) throws IOException {
+        var failed = new AtomicInteger();
+        try (var dispatcher = new Dispatcher()) {
+            var lineNumber = 0;
+            String line;
+            while ((line = jobs.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                var descriptor = line;
+                var defaultId = "line-" + lineNumber;
+                dispatcher.dispatch(() -> {
+                    var result = runJob(descriptor, defaultId);
+                    if (!result.succeeded()) {
+                        failed.incrementAndGet();
+                    }
+                    results.println(result.toJson());
+                });
+            }
+        }
+        return failed.get();
+    }
+
+    /**
+     * Runs the jobs of a spool folder until the calling thread is interrupted. Every "*.json" file in the folder is a job descriptor. It is renamed to
+     * "*.running" while the job runs and to "*.done" or "*.failed" afterwards. Write descriptors under another name first and rename them to "*.json"
+     * so the worker never reads a partly written descriptor
+     *
+     * @throws IOException          When the folder could not be watched
+     * @throws InterruptedException When the calling thread is interrupted. Jobs that already started are finished first
+     */
+    public void runSpoolDirectory(Path directory) throws IOException, InterruptedException {
+        try (var watcher = directory.getFileSystem().newWatchService(); var dispatcher = new Dispatcher()) {
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE);
+            log(LogLevel.INFO, () -> "Watching \"" + directory + "\" for jobs");
+
+            while (!Thread.currentThread().isInterrupted()) {
+                for (var file : listJobs(directory)) {
+                    var runningFile = claim(file);
+                    if (runningFile != null) {
+                        dispatcher.dispatch(() -> runSpooledJob(runningFile));
+                    }
+                }
+
+                // the folder is listed again after the timeout, events may be lost when many files arrive at once
+                var key = watcher.poll(SPOOL_POLL_SECONDS, TimeUnit.SECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+            throw new InterruptedException();
+        }
+    }
+
+    private void runSpooledJob(Path runningFile) {
+        var baseName = baseName(runningFile, RUNNING_SUFFIX);
+        JobResult result;
+        try {
+            result = runJob(Files.readString(runningFile), baseName);
+        } catch (IOException ex) {
+            result = JobResult.failed(baseName, 0, "Could not read job descriptor: " + ex.getMessage());
+        }
+
+        var finishedFile = runningFile.resolveSibling(baseName + (result.succeeded() ? DONE_SUFFIX : FAILED_SUFFIX));
+        try {
+            Files.move(runningFile, finishedFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            log(LogLevel.ERROR, () -> "Could not rename \"" + runningFile + "\" to \"" + finishedFile + "\": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Runs one job with a fresh {@link ApeerDevKit}. When the module fails, the ADK is aborted so its prefetching and staging do not outlive the job
+     */
+    JobResult runJob(String descriptor, String defaultId) {
+        var start = System.nanoTime();
+        var id = defaultId;
+        ApeerDevKit adk = null;
+        try {
+            var json = WorkerJob.decode(descriptor, defaultId);
+            id = WorkerJob.readId(json, defaultId);
+            var jobSystem = WorkerJob.parse(json, id).createSystem(system);
+            // read once for the logger and the ADK, the settings of a job do not change while it runs
+            var settings = ApeerSettings.fromSystem(jobSystem);
+            adk = new ApeerDevKit(jobSystem, settings, null, new PrefixedLogger("[" + id + "] ", createLogger(settings)));
+            module.run(adk);
+            if (!adk.isFinalized()) {
+                adk.finalizeModule();
+            }
+
+            var result = JobResult.succeeded(id, elapsedMillis(start));
+            log(LogLevel.INFO, () -> "Job \"" + result.id + "\" succeeded after " + result.millis + " ms");
+            return result;
+        } catch (Exception ex) {
+            var result = JobResult.failed(id, elapsedMillis(start), ex.getMessage());
+            log(LogLevel.ERROR, () -> "Job \"" + result.id + "\" failed after " + result.millis + " ms: " + result.error);
+            return result;
+        } finally {
+            if (adk != null) {
+                adk.abort();
+            }
+        }
+    }
+
+    private static List<Path> listJobs(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files
+                    .filter(file -> file.getFileName().toString().endsWith(JOB_SUFFIX) && Files.isRegularFile(file))
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    /**
+     * Renames a job descriptor to mark it as running, so other workers on the same folder skip it
+     *
+     * @return The renamed file or null when another worker claimed it first
+     */
+    private Path claim(Path file) {
+        var runningFile = file.resolveSibling(baseName(file, JOB_SUFFIX) + RUNNING_SUFFIX);
+        try {
+            return Files.move(file, runningFile, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException | FileAlreadyExistsException ex) {
+            return null;
+        } catch (IOException ex) {
+            log(LogLevel.ERROR, () -> "Could not claim job \"" + file + "\": " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private static String baseName(Path file, String suffix) {
+        var name = file.getFileName().toString();
+        return name.substring(0, name.length() - suffix.length());
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * Logs to stderr, so the result lines of {@link #runJobLines(BufferedReader, PrintStream)} on stdout are not mixed with log lines
+     */
+    private static ILogger createLogger(ApeerSettings settings) {
+        return ConsoleLogger.standardError(settings);
+    }
+
+    private void log(LogLevel level, Supplier<String> message) {
+        logger.log(level, message);
+    }
+
+    /**
+     * Runs jobs on the calling thread or, with a concurrency above 1, on a pool that never holds more jobs than it can run so reading further jobs waits
+     * for a free slot. Closing waits for all dispatched jobs
+     */
+    private final class Dispatcher implements AutoCloseable {
+        private final ExecutorService executor;
+        private final Semaphore slots = new Semaphore(concurrency);
+
+        private Dispatcher() {
+            var count = new AtomicInteger();
+            executor = concurrency == 1 ? null : Executors.newFixedThreadPool(concurrency, runnable -> {
+                var thread = new Thread(runnable, "adk-worker-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        private void dispatch(Runnable job) throws InterruptedIOException {
+            if (executor == null) {
+                job.run();
+                return;
+            }
+
+            try {
+                slots.acquire();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a free job slot");
+            }
+            executor.execute(() -> {
+                try {
+                    job.run();
+                } finally {
+                    slots.release();
+                }
+            });
+        }
+
+        @Override
+        public void close() {
+            if (executor == null) {
+                return;
+            }
+            executor.shutdown();
+            var interrupted = false;
+            while (true) {
+                try {
+                    if (executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                        break;
+                    }
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    static final class JobResult {
+        private final String id;
+        private final long millis;
+        private final String error;
+
+        private JobResult(String id, long millis, String error) {
+            this.id = id;
+            this.millis = millis;
+            this.error = error;
+        }
+
+        static JobResult succeeded(String id, long millis) {
+            return new JobResult(id, millis, null);
+        }
+
+        static JobResult failed(String id, long millis, String error) {
+            return new JobResult(id, millis, String.valueOf(error));
+        }
+
+        boolean succeeded() {
+            return error == null;
+        }
+
+        String toJson() {
+            var json = "{\"id\":" + JSONObject.quote(id) + ",\"status\":\"" + (succeeded() ? "succeeded" : "failed") + "\",\"millis\":" + millis;
+            return succeeded() ? json + "}" : json + ",\"error\":" + JSONObject.quote(error) + "}";
+        }
+    }
+}
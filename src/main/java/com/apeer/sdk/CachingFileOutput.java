@@ -0,0 +1,239 @@
+package com.apeer.sdk;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps staged files in a content-addressed cache folder on the same filesystem as the output folder. A file whose content is already cached is hard
+ * linked from the cache instead of being copied again, new files are hard linked into the cache after staging. The cache is bounded in size and evicts
+ * the least recently used files, recency is tracked per process and files cached by earlier processes count from when they were cached. Caching is
+ * best effort, when the cache cannot be used the file is staged as usual
+ * <p>
+ * Every file is read once for its checksum before it is staged, so a file that is not cached yet is read twice. Files the underlying output stages as
+ * hard links are not cached, because they share their data with the module's file and would change with it. Stage with
+ * {@link StagingStrategy#TRANSFER} or {@link StagingStrategy#MOVE} to cache every file. Cached files share their data with the files in the output
+ * folder, so output files must not be changed in place after staging
+ */
+public class CachingFileOutput implements IFileOutput {
+    private static final String TEMP_PREFIX = ".tmp-";
+
+    private final IFileOutput fileOutput;
+    private final Path cacheFolder;
+    private final long maxBytes;
+    private final String digestAlgorithm;
+    private final boolean reportDigests;
+
+    /**
+     * Cached files by path from least to most recently used, loaded from the cache folder on first use
+     */
+    private LinkedHashMap<Path, Long> entries;
+    private long totalBytes;
+
+    /**
+     * @param fileOutput      Stages files that are not cached yet and writes all other files, should copy or move files instead of hard linking them
+     * @param cacheFolder     The folder of the cache, should be on the same filesystem as the output folder
+     * @param maxBytes        The size of all cached files after which the least recently used ones are evicted
+     * @param digestAlgorithm The {@link java.security.MessageDigest} algorithm that identifies the content of a file
+     * @param reportDigests   true to return the digest with every staged file, as {@link OutputJsonFileWriter} does when it computes checksums
+     */
+    public CachingFileOutput(IFileOutput fileOutput, Path cacheFolder, long maxBytes, String digestAlgorithm, boolean reportDigests) {
+        Validate.notNull(fileOutput);
+        Validate.notNull(cacheFolder);
+        Validate.isTrue(maxBytes > 0, "maxBytes must be positive");
+        Validate.notNull(Digests.create(digestAlgorithm));
+
+        this.fileOutput = fileOutput;
+        this.cacheFolder = cacheFolder.toAbsolutePath();
+        this.maxBytes = maxBytes;
+        this.digestAlgorithm = digestAlgorithm;
+        this.reportDigests = reportDigests;
+    }
+
+    @Override
+    public void writeTextToFile(String filePath, String text) throws ApeerOutputException {
+        fileOutput.writeTextToFile(filePath, text);
+    }
+
+    @Override
+    public void writeJsonToFile(String filePath, IJsonContent content) throws ApeerOutputException {
+        fileOutput.writeJsonToFile(filePath, content);
+    }
+
+    @Override
+    public WritableByteChannel openFile(Path targetPath) throws ApeerOutputException {
+        return fileOutput.openFile(targetPath);
+    }
+
+    @Override
+    public void moveFile(Path sourcePath, Path targetPath) throws ApeerOutputException {
+        stageFile(sourcePath, targetPath);
+    }
+
+    @Override
+    public StagedFile stageFile(Path sourcePath, Path targetPath) throws ApeerOutputException {
+        Validate.notNull(sourcePath);
+        Validate.notNull(targetPath);
+
+        long size;
+        String digest;
+        try {
+            size = Files.size(sourcePath);
+            var messageDigest = Digests.create(digestAlgorithm);
+            Digests.update(messageDigest, sourcePath);
+            digest = Digests.toHex(messageDigest.digest());
+        } catch (IOException ex) {
+            throw new ApeerOutputException("Could not read \"" + sourcePath + "\"", ex);
+        }
+
+        var entry = cacheFolder.resolve(digest.substring(0, 2)).resolve(digest);
+        if (linkFromCache(entry, size, targetPath)) {
+            return new StagedFile(sourcePath, targetPath, StagingStrategy.HARD_LINK, size, reportDigests ? digest : null);
+        }
+
+        var stagedFile = fileOutput.stageFile(sourcePath, targetPath);
+        // a hard link shares its data with the module's file, which could still be changed in place and must not end up in the cache
+        if (size <= maxBytes && stagedFile.getStrategy() != StagingStrategy.HARD_LINK) {
+            addToCache(entry, size, targetPath);
+        }
+        return reportDigests
+                ? new StagedFile(sourcePath, targetPath, stagedFile.getStrategy(), stagedFile.getSize(), digest)
+                : stagedFile;
+    }
+
+    private boolean linkFromCache(Path entry, long size, Path targetPath) throws ApeerOutputException {
+        synchronized (this) {
+            var cachedSize = getEntries().get(entry);
+            if (cachedSize == null || cachedSize != size) {
+                return false;
+            }
+        }
+
+        try {
+            var targetFolder = targetPath.toAbsolutePath().getParent();
+            if (targetFolder != null) {
+                Files.createDirectories(targetFolder);
+            }
+            // the modification time is not touched, it is shared with every output file linked from the entry
+            Files.createLink(targetPath, entry);
+            return true;
+        } catch (FileAlreadyExistsException ex) {
+            throw new ApeerOutputException("Could not stage to \"" + targetPath + "\" because it already exists", ex);
+        } catch (NoSuchFileException ex) {
+            // evicted by another process
+            remove(entry);
+            return false;
+        } catch (IOException | UnsupportedOperationException ex) {
+            return false;
+        }
+    }
+
+    private void addToCache(Path entry, long size, Path stagedPath) {
+        var tempPath = cacheFolder.resolve(TEMP_PREFIX + UUID.randomUUID());
+        try {
+            Files.createDirectories(entry.getParent());
+            Files.createLink(tempPath, stagedPath);
+            Files.move(tempPath, entry, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | UnsupportedOperationException ex) {
+            // e.g. EXDEV when the cache is on another filesystem, the file is staged anyway
+            deleteQuietly(tempPath);
+            return;
+        }
+
+        synchronized (this) {
+            var previousSize = getEntries().put(entry, size);
+            totalBytes += size - (previousSize == null ? 0 : previousSize);
+            evict();
+        }
+    }
+
+    /**
+     * Deletes the least recently used files until the cache fits its size
+     */
+    private void evict() {
+        var iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            var entry = iterator.next();
+            deleteQuietly(entry.getKey());
+            totalBytes -= entry.getValue();
+            iterator.remove();
+        }
+    }
+
+    private synchronized void remove(Path entry) {
+        var size = getEntries().remove(entry);
+        if (size != null) {
+            totalBytes -= size;
+        }
+    }
+
+    private Map<Path, Long> getEntries() {
+        if (entries == null) {
+            entries = new LinkedHashMap<>(16, 0.75f, true);
+            totalBytes = 0;
+            for (var file : listCachedFiles()) {
+                entries.put(file.path, file.size);
+                totalBytes += file.size;
+            }
+        }
+        return entries;
+    }
+
+    private ArrayList<CachedFile> listCachedFiles() {
+        if (!Files.isDirectory(cacheFolder)) {
+            return new ArrayList<>();
+        }
+        try (var files = Files.walk(cacheFolder, 2)) {
+            return files
+                    .filter(Files::isRegularFile)
+                    .filter(file -> !file.getFileName().toString().startsWith(TEMP_PREFIX))
+                    .map(CachedFile::read)
+                    .filter(file -> file != null)
+                    .sorted(Comparator.comparing(file -> file.lastModified))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        } catch (IOException | RuntimeException ex) {
+            return new ArrayList<>();
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            // the cache stays usable, the file is evicted again later
+        }
+    }
+
+    private static final class CachedFile {
+        private final Path path;
+        private final long size;
+        private final FileTime lastModified;
+
+        private CachedFile(Path path, long size, FileTime lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        private static CachedFile read(Path path) {
+            try {
+                return new CachedFile(path, Files.size(path), Files.getLastModifiedTime(path));
+            } catch (IOException ex) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.apeer.sdk;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reads a file in chunks of the buffer size of a {@link DirectBufferPool}. The calling thread and reader tasks on the I/O executor claim the chunks in
+ * file order and read them with positional reads, so they share one channel, and hand every chunk to the consumer on the compute pool. A reader
+ * waits for a free buffer before it reads the next chunk, so a slow consumer slows down reading and no more than the buffers of the pool are in memory
+ */
+final class ChunkedFileReader {
+    static final String READ_PHASE = "input.chunks";
+
+    private final DirectBufferPool buffers;
+    private final Executor ioExecutor;
+    private final ForkJoinPool computePool;
+    private final int readers;
+
+    /**
+     * @param readers The number of chunks that are read at the same time, at most the number of buffers
+     */
+    ChunkedFileReader(DirectBufferPool buffers, Executor ioExecutor, ForkJoinPool computePool, int readers) {
+        Validate.notNull(buffers);
+        Validate.notNull(ioExecutor);
+        Validate.notNull(computePool);
+        Validate.isTrue(readers > 0, "readers must be positive");
+
+        this.buffers = buffers;
+        this.ioExecutor = ioExecutor;
+        this.computePool = computePool;
+        this.readers = Math.min(readers, buffers.getMaxBuffers());
+    }
+
+    /**
+     * Passes every chunk of the file to the consumer and waits until all of them are consumed. The first failure stops reading, chunks that are
+     * already being consumed are waited for
+     *
+     * @return The size of the file
+     * @throws ApeerInputException When the file could not be read or the consumer failed
+     */
+    long read(Path file, IChunkConsumer consumer) throws ApeerInputException {
+        Validate.notNull(file);
+        Validate.notNull(consumer);
+
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var size = channel.size();
+            if (size == 0) {
+                return 0;
+            }
+
+            var read = new Read(channel, size, consumer);
+            var readerCount = (int) Math.min(readers, read.chunks);
+            read.active.addAndGet(readerCount);
+            read.unstartedReaders.set(readerCount - 1);
+            for (int i = 1; i < readerCount; i++) {
+                try {
+                    ioExecutor.execute(read::startReader);
+                } catch (RuntimeException ex) {
+                    // the reader stays unstarted and is finished by the calling thread below
+                }
+            }
+            // the calling thread is a reader too, so the file is read even when every thread of the I/O executor waits in this method
+            read.readChunks();
+            read.finishUnstartedReaders();
+            var failure = read.await();
+            if (failure instanceof ApeerInputException) {
+                throw (ApeerInputException) failure;
+            }
+            if (failure != null) {
+                throw new ApeerInputException("Could not read \"" + file + "\": " + failure.getMessage(), failure);
+            }
+            return size;
+        } catch (IOException ex) {
+            throw new ApeerInputException("Could not read \"" + file + "\"", ex);
+        }
+    }
+
+    /**
+     * The state of one call to {@link #read(Path, IChunkConsumer)}. It is done when all reader and consumer tasks finished
+     */
+    private final class Read {
+        private final FileChannel channel;
+        private final long size;
+        private final long chunks;
+        private final IChunkConsumer consumer;
+        private final AtomicLong nextChunk = new AtomicLong();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger unstartedReaders = new AtomicInteger();
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Read(FileChannel channel, long size, IChunkConsumer consumer) {
+            this.channel = channel;
+            this.size = size;
+            this.chunks = (size + buffers.getBufferSize() - 1) / buffers.getBufferSize();
+            this.consumer = consumer;
+        }
+
+        private void startReader() {
+            if (claimReader()) {
+                readChunks();
+            }
+        }
+
+        /**
+         * Finishes the readers that are still queued on the I/O executor once the calling thread read all chunks, they would find nothing to read
+         */
+        private void finishUnstartedReaders() {
+            while (claimReader()) {
+                finishTask();
+            }
+        }
+
+        private boolean claimReader() {
+            return unstartedReaders.getAndUpdate(count -> Math.max(0, count - 1)) > 0;
+        }
+
+        private void readChunks() {
+            try {
+                long chunk;
+                while (failure.get() == null && (chunk = nextChunk.getAndIncrement()) < chunks) {
+                    var buffer = buffers.take();
+                    try {
+                        var offset = chunk * buffers.getBufferSize();
+                        readFully(buffer, offset);
+                        active.incrementAndGet();
+                        try {
+                            computePool.execute(() -> consume(offset, buffer));
+                        } catch (RuntimeException ex) {
+                            // this reader is still active, so the count cannot reach 0 here
+                            active.decrementAndGet();
+                            throw ex;
+                        }
+                    } catch (Exception ex) {
+                        buffers.release(buffer);
+                        throw ex;
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                fail(ex);
+            } catch (Exception ex) {
+                fail(ex);
+            } finally {
+                finishTask();
+            }
+        }
+
+        private void readFully(ByteBuffer buffer, long offset) throws IOException {
+            buffer.limit((int) Math.min(buffer.capacity(), size - offset));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new EOFException("The file ended at " + (offset + buffer.position()) + " bytes instead of " + size);
+                }
+            }
+            buffer.flip();
+        }
+
+        private void consume(long offset, ByteBuffer buffer) {
+            try {
+                if (failure.get() == null) {
+                    consumer.accept(offset, buffer.asReadOnlyBuffer());
+                }
+            } catch (Exception ex) {
+                fail(ex);
+            } finally {
+                buffers.release(buffer);
+                finishTask();
+            }
+        }
+
+        private void fail(Exception ex) {
+            failure.compareAndSet(null, ex);
+        }
+
+        private void finishTask() {
+            if (active.decrementAndGet() == 0) {
+                done.complete(null);
+            }
+        }
+
+        /**
+         * @return The first failure of a reader or the consumer or null when all chunks were consumed
+         */
+        private Exception await() throws ApeerInputException {
+            try {
+                done.get();
+            } catch (ExecutionException | InterruptedException ex) {
+                if (ex instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                fail(ex);
+                throw new ApeerInputException("Interrupted while reading chunks", ex);
+            }
+            return failure.get();
+        }
+    }
+}
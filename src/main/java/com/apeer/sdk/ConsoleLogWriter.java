@@ -0,0 +1,121 @@
+package com.apeer.sdk;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.PrintStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prints lines on a background thread. Lines are handed over through a bounded queue, when it is full new lines are dropped instead of blocking the
+ * caller and the number of dropped lines is printed once there is room again
+ */
+final class ConsoleLogWriter {
+    static final int DEFAULT_CAPACITY = 1024;
+    private static final long FLUSH_TIMEOUT_SECONDS = 5;
+    private static ConsoleLogWriter standardOutput;
+    private static ConsoleLogWriter standardError;
+
+    private final PrintStream out;
+    private final BlockingQueue<Entry> queue;
+    private final AtomicLong dropped = new AtomicLong();
+
+    ConsoleLogWriter(PrintStream out, int capacity) {
+        Validate.notNull(out);
+        Validate.isTrue(capacity > 0, "capacity must be positive");
+
+        this.out = out;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+
+        var thread = new Thread(this::run, "adk-logger");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return The writer for {@code System.out} that is shared by all loggers. Lines that are still queued are printed when the JVM shuts down
+     */
+    static synchronized ConsoleLogWriter standardOutput() {
+        if (standardOutput == null) {
+            standardOutput = createFlushedOnShutdown(System.out);
+        }
+        return standardOutput;
+    }
+
+    /**
+     * @return The writer for {@code System.err} that is shared by all loggers, for processes that print their results to {@code System.out}
+     */
+    static synchronized ConsoleLogWriter standardError() {
+        if (standardError == null) {
+            standardError = createFlushedOnShutdown(System.err);
+        }
+        return standardError;
+    }
+
+    private static ConsoleLogWriter createFlushedOnShutdown(PrintStream out) {
+        var writer = new ConsoleLogWriter(out, DEFAULT_CAPACITY);
+        Runtime.getRuntime().addShutdownHook(new Thread(writer::flush, "adk-logger-shutdown"));
+        return writer;
+    }
+
+    /**
+     * Queues a line without waiting
+     *
+     * @return false when the queue was full and the line was dropped
+     */
+    boolean offer(String line) {
+        if (queue.offer(new Entry(line, null))) {
+            return true;
+        }
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Waits until all lines queued before this call are printed, but at most a few seconds
+     */
+    void flush() {
+        var flushed = new CountDownLatch(1);
+        try {
+            if (queue.offer(new Entry(null, flushed), FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                flushed.await(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                var entry = queue.take();
+                var droppedLines = dropped.getAndSet(0);
+                if (droppedLines > 0) {
+                    out.println("[ADK] WARN " + droppedLines + " log messages were dropped because the log buffer was full");
+                }
+
+                if (entry.flushed != null) {
+                    out.flush();
+                    entry.flushed.countDown();
+                } else {
+                    out.println(entry.line);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Entry {
+        private final String line;
+        private final CountDownLatch flushed;
+
+        private Entry(String line, CountDownLatch flushed) {
+            this.line = line;
+            this.flushed = flushed;
+        }
+    }
+}
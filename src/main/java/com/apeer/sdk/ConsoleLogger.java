@@ -0,0 +1,64 @@
+package com.apeer.sdk;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.function.Supplier;
+
+/**
+ * Logs to the console through a {@link ConsoleLogWriter}, so logging never waits for the console. Messages longer than the configured maximum are
+ * truncated, which keeps large payloads from flooding the module log
+ */
+final class ConsoleLogger implements ILogger {
+    private final LogLevel threshold;
+    private final int maxMessageLength;
+    private final ConsoleLogWriter writer;
+
+    ConsoleLogger(LogLevel threshold, int maxMessageLength, ConsoleLogWriter writer) {
+        Validate.notNull(threshold);
+        Validate.isTrue(maxMessageLength > 0, "maxMessageLength must be positive");
+        Validate.notNull(writer);
+
+        this.threshold = threshold;
+        this.maxMessageLength = maxMessageLength;
+        this.writer = writer;
+    }
+
+    /**
+     * @return A logger to the shared console writer with the level and maximum length of ADK_LOG_LEVEL and ADK_LOG_MAX_LENGTH
+     */
+    static ConsoleLogger standardOutput(ApeerSettings settings) {
+        return new ConsoleLogger(settings.getLogLevel(), settings.getLogMaxLength(), ConsoleLogWriter.standardOutput());
+    }
+
+    /**
+     * @return A logger like {@link #standardOutput(ApeerSettings)} that writes to {@code System.err}
+     */
+    static ConsoleLogger standardError(ApeerSettings settings) {
+        return new ConsoleLogger(settings.getLogLevel(), settings.getLogMaxLength(), ConsoleLogWriter.standardError());
+    }
+
+    @Override
+    public boolean isEnabled(LogLevel level) {
+        return level != LogLevel.OFF && level.compareTo(threshold) >= 0;
+    }
+
+    @Override
+    public void log(LogLevel level, Supplier<String> message) {
+        if (!isEnabled(level)) {
+            return;
+        }
+        writer.offer("[ADK] " + level + " " + truncate(String.valueOf(message.get())));
+    }
+
+    @Override
+    public void flush() {
+        writer.flush();
+    }
+
+    private String truncate(String message) {
+        if (message.length() <= maxMessageLength) {
+            return message;
+        }
+        return message.substring(0, maxMessageLength) + "... (" + (message.length() - maxMessageLength) + " more characters)";
+    }
+}
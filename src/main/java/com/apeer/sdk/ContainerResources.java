@@ -0,0 +1,157 @@
+package com.apeer.sdk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The CPU and memory limits of the container the module runs in, read from the cgroup v2 files or, on older hosts, the cgroup v1 files. Thread pools
+ * are sized from these limits instead of the number of cores of the host, which a container usually cannot use
+ */
+final class ContainerResources {
+    private static final Path CGROUP_ROOT = Path.of("/sys/fs/cgroup");
+    private static final int MAX_IO_PARALLELISM = 64;
+    /**
+     * Stack and buffers of one I/O thread, at most an eighth of the container memory is planned for them
+     */
+    private static final long IO_THREAD_MEMORY = 4L << 20;
+    /**
+     * Direct buffers are not part of the heap the JVM sizes from the container memory, so at most an eighth of it is planned for chunk buffers
+     */
+    private static final int CHUNK_BUFFER_MEMORY_SHARE = 8;
+
+    private static volatile ContainerResources current;
+
+    private final int cpus;
+    private final long memoryLimit;
+
+    private ContainerResources(int cpus, long memoryLimit) {
+        this.cpus = cpus;
+        this.memoryLimit = memoryLimit;
+    }
+
+    /**
+     * @return The limits of this container, read once per process
+     */
+    static ContainerResources current() {
+        var resources = current;
+        if (resources == null) {
+            resources = read(CGROUP_ROOT, Runtime.getRuntime().availableProcessors());
+            current = resources;
+        }
+        return resources;
+    }
+
+    /**
+     * @param root                The mount point of the cgroup filesystem
+     * @param availableProcessors The processors the JVM reports, the upper bound of the CPU limit
+     */
+    static ContainerResources read(Path root, int availableProcessors) {
+        var cpus = Math.max(1, availableProcessors);
+        var quota = readCpuQuota(root);
+        if (quota > 0) {
+            cpus = Math.min(cpus, (int) Math.max(1, Math.ceil(quota)));
+        }
+        return new ContainerResources(cpus, readMemoryLimit(root));
+    }
+
+    /**
+     * @return The number of CPUs the container may use, rounded up
+     */
+    int getCpus() {
+        return cpus;
+    }
+
+    /**
+     * @return The memory limit of the container in bytes or -1 when it is not limited
+     */
+    long getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    /**
+     * @return The number of platform threads for blocking I/O: two per CPU, as I/O threads mostly wait, but no more than the memory limit allows
+     */
+    int getIoParallelism() {
+        var parallelism = Math.min(Math.max(2, cpus * 2), MAX_IO_PARALLELISM);
+        if (memoryLimit > 0) {
+            parallelism = (int) Math.min(parallelism, Math.max(1, memoryLimit / 8 / IO_THREAD_MEMORY));
+        }
+        return parallelism;
+    }
+
+    /**
+     * @param chunkSize The size of one chunk buffer in bytes
+     * @return The number of direct buffers for reading file inputs in chunks: two per CPU, but no more than the memory limit allows, at least one
+     */
+    int getChunkBuffers(int chunkSize) {
+        var buffers = (long) cpus * 2;
+        if (memoryLimit > 0) {
+            buffers = Math.min(buffers, memoryLimit / CHUNK_BUFFER_MEMORY_SHARE / chunkSize);
+        }
+        return (int) Math.max(1, buffers);
+    }
+
+    /**
+     * @return The number of CPUs of the CFS quota or -1 when there is no quota
+     */
+    private static double readCpuQuota(Path root) {
+        // cgroup v2: "<quota> <period>" or "max <period>"
+        var cpuMax = readFirstLine(root.resolve("cpu.max"));
+        if (cpuMax != null) {
+            var parts = cpuMax.trim().split("\\s+");
+            return parts.length == 2 && !parts[0].equals("max") ? parseRatio(parts[0], parts[1]) : -1;
+        }
+
+        for (var controller : new String[]{"cpu", "cpu,cpuacct"}) {
+            var quota = readFirstLine(root.resolve(controller).resolve("cpu.cfs_quota_us"));
+            var period = readFirstLine(root.resolve(controller).resolve("cpu.cfs_period_us"));
+            if (quota != null && period != null) {
+                return parseRatio(quota.trim(), period.trim());
+            }
+        }
+        return -1;
+    }
+
+    private static double parseRatio(String quota, String period) {
+        try {
+            var quotaValue = Long.parseLong(quota);
+            var periodValue = Long.parseLong(period);
+            return quotaValue > 0 && periodValue > 0 ? (double) quotaValue / periodValue : -1;
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private static long readMemoryLimit(Path root) {
+        var limit = readFirstLine(root.resolve("memory.max"));
+        if (limit == null) {
+            limit = readFirstLine(root.resolve("memory").resolve("memory.limit_in_bytes"));
+        }
+        if (limit == null || limit.trim().equals("max")) {
+            return -1;
+        }
+
+        try {
+            var bytes = Long.parseLong(limit.trim());
+            // cgroup v1 reports "no limit" as a number close to Long.MAX_VALUE
+            return bytes > 0 && bytes < Long.MAX_VALUE / 2 ? bytes : -1;
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private static String readFirstLine(Path file) {
+        try (var lines = Files.lines(file)) {
+            return lines.findFirst().orElse(null);
+        } catch (IOException | UncheckedIOException | SecurityException ex) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return cpus + " CPUs, " + (memoryLimit > 0 ? (memoryLimit >> 20) + " MiB memory" : "unlimited memory");
+    }
+}
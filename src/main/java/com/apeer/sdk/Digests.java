@@ -0,0 +1,58 @@
+package com.apeer.sdk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Helpers for the checksums of staged files
+ */
+final class Digests {
+    static final int BUFFER_SIZE = 256 * 1024;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private Digests() {
+    }
+
+    /**
+     * @return A new digest or null when the algorithm is null
+     * @throws IllegalArgumentException When the JVM does not provide the algorithm
+     */
+    static MessageDigest create(String algorithm) {
+        if (algorithm == null) {
+            return null;
+        }
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalArgumentException("Unknown digest algorithm \"" + algorithm + "\"", ex);
+        }
+    }
+
+    /**
+     * Reads a file into the digest. Only used when a file reaches the output folder without being copied, e.g. as hard link
+     */
+    static void update(MessageDigest digest, Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        var hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,77 @@
+package com.apeer.sdk;
+
+import org.apache.commons.lang3.Validate;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed number of direct buffers of the same size that are allocated on first use and reused afterwards. Taking a buffer blocks while all of them
+ * are in use, which bounds the memory of whoever reads into them
+ */
+final class DirectBufferPool {
+    private final int bufferSize;
+    private final int maxBuffers;
+    private final BlockingQueue<ByteBuffer> free;
+    private final AtomicInteger allocated = new AtomicInteger();
+
+    DirectBufferPool(int bufferSize, int maxBuffers) {
+        Validate.isTrue(bufferSize > 0, "bufferSize must be positive");
+        Validate.isTrue(maxBuffers > 0, "maxBuffers must be positive");
+
+        this.bufferSize = bufferSize;
+        this.maxBuffers = maxBuffers;
+        this.free = new ArrayBlockingQueue<>(maxBuffers);
+    }
+
+    /**
+     * @return A cleared buffer, waits until one is returned when all buffers are in use
+     */
+    ByteBuffer take() throws InterruptedException {
+        var buffer = free.poll();
+        if (buffer == null) {
+            buffer = allocate();
+        }
+        if (buffer == null) {
+            buffer = free.take();
+        }
+        return buffer.clear();
+    }
+
+    void release(ByteBuffer buffer) {
+        Validate.isTrue(buffer.capacity() == bufferSize && buffer.isDirect(), "buffer does not belong to this pool");
+
+        if (!free.offer(buffer)) {
+            throw new IllegalStateException("More buffers were released than taken");
+        }
+    }
+
+    int getBufferSize() {
+        return bufferSize;
+    }
+
+    int getMaxBuffers() {
+        return maxBuffers;
+    }
+
+    /**
+     * @return The number of buffers allocated so far
+     */
+    int getAllocated() {
+        return allocated.get();
+    }
+
+    private ByteBuffer allocate() {
+        while (true) {
+            var count = allocated.get();
+            if (count >= maxBuffers) {
+                return null;
+            }
+            if (allocated.compareAndSet(count, count + 1)) {
+                return ByteBuffer.allocateDirect(bufferSize);
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.apeer.sdk;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lists the files of a directory tree, one task per directory so that sibling directories are listed at the same time. Include and exclude globs are
+ * matched against the path relative to the root with "/" as separator, e.g. "level_0/**.png". Symbolic links to files are listed, symbolic links to
+ * directories are not followed so the walk cannot loop. The calling thread lists directories as well, so the walk finishes even when every thread of
+ * the executor is waiting for a walk
+ */
+final class DirectoryWalker {
+    /**
+     * Queued when the last directory was listed
+     */
+    private static final Path DONE = Path.of("");
+    private static final PathMatcher ALL = path -> true;
+    private static final PathMatcher NONE = path -> false;
+
+    private final PathMatcher includes;
+    private final PathMatcher excludes;
+    private final Executor executor;
+    private final Semaphore openFiles;
+
+    /**
+     * @param includes  Globs of the files to list or null or empty to list all files
+     * @param excludes  Globs of the files and directories to skip or null
+     * @param openFiles Limits the directories listed at the same time, shared with everything else the ADK opens
+     */
+    DirectoryWalker(String[] includes, String[] excludes, Executor executor, Semaphore openFiles) {
+        Validate.notNull(executor);
+        Validate.notNull(openFiles);
+
+        this.includes = toMatcher(includes, ALL);
+        this.excludes = toMatcher(excludes, NONE);
+        this.executor = executor;
+        this.openFiles = openFiles;
+    }
+
+    /**
+     * @return The paths of all matching files relative to the root, sorted
+     * @throws ApeerOutputException When the root is no directory or any directory could not be listed
+     */
+    List<Path> walk(Path root) throws ApeerOutputException {
+        if (!Files.isDirectory(root)) {
+            throw new ApeerOutputException("Could not stage \"" + root + "\" because it is not a directory");
+        }
+
+        var walk = new Walk(root);
+        walk.submit(root);
+        try {
+            walk.listUntilDone();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ApeerOutputException("Interrupted while listing \"" + root + "\"", ex);
+        }
+        if (walk.error.get() != null) {
+            throw new ApeerOutputException("Could not list \"" + root + "\"", walk.error.get());
+        }
+
+        if (!walk.failures.isEmpty()) {
+            var message = new StringBuilder("Could not list " + walk.failures.size() + " directories of \"" + root + "\":");
+            walk.failures.forEach(failure -> message.append(System.lineSeparator()).append("  ").append(failure.getMessage()));
+            var exception = new ApeerOutputException(message.toString());
+            walk.failures.forEach(exception::addSuppressed);
+            throw exception;
+        }
+
+        var files = new ArrayList<>(walk.files);
+        files.sort(null);
+        return files;
+    }
+
+    private static PathMatcher toMatcher(String[] globs, PathMatcher empty) {
+        if (globs == null || globs.length == 0) {
+            return empty;
+        }
+
+        var matchers = new ArrayList<PathMatcher>(globs.length);
+        for (var glob : globs) {
+            Validate.notBlank(glob, "globs must not be blank");
+            matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+        }
+        return path -> matchers.stream().anyMatch(matcher -> matcher.matches(path));
+    }
+
+    /**
+     * The state of one call to {@link #walk(Path)}. Directories are queued and listed by whichever thread takes them first, the calling thread or a
+     * task on the executor. It is done when the last queued directory was listed
+     */
+    private final class Walk {
+        private final Path root;
+        private final BlockingQueue<Path> directories = new LinkedBlockingQueue<>();
+        private final Queue<Path> files = new ConcurrentLinkedQueue<>();
+        private final Queue<Exception> failures = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicReference<RuntimeException> error = new AtomicReference<>();
+
+        private Walk(Path root) {
+            this.root = root;
+        }
+
+        private void submit(Path directory) {
+            running.incrementAndGet();
+            directories.add(directory);
+            try {
+                executor.execute(this::listNext);
+            } catch (RuntimeException ex) {
+                // the calling thread lists the directory instead
+            }
+        }
+
+        private void listUntilDone() throws InterruptedException {
+            Path directory;
+            while ((directory = directories.take()) != DONE) {
+                list(directory);
+            }
+        }
+
+        private void listNext() {
+            var directory = directories.poll();
+            if (directory == DONE) {
+                directories.add(DONE);
+            } else if (directory != null) {
+                list(directory);
+            }
+        }
+
+        private void list(Path directory) {
+            try {
+                openFiles.acquire();
+                try (var entries = Files.newDirectoryStream(directory)) {
+                    for (var entry : entries) {
+                        var relativePath = root.relativize(entry);
+                        if (excludes.matches(relativePath)) {
+                            continue;
+                        }
+                        var attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                        if (attributes.isDirectory()) {
+                            submit(entry);
+                        } else if ((attributes.isRegularFile() || attributes.isSymbolicLink() && Files.isRegularFile(entry))
+                                && includes.matches(relativePath)) {
+                            files.add(relativePath);
+                        }
+                    }
+                } finally {
+                    openFiles.release();
+                }
+            } catch (IOException ex) {
+                failures.add(ex);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                failures.add(ex);
+            } catch (RuntimeException ex) {
+                error.compareAndSet(null, ex);
+            } finally {
+                if (running.decrementAndGet() == 0) {
+                    directories.add(DONE);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.apeer.sdk;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Reads the WFE_INPUT_JSON from an environment variable. This is how APEER passes inputs to a module
+ */
+public class EnvironmentInputSource implements IInputSource {
+    private final ISystem system;
+    private final String key;
+
+    public EnvironmentInputSource(ISystem system, String key) {
+        Validate.notNull(system);
+        Validate.notNull(key);
+
+        this.system = system;
+        this.key = key;
+    }
+
+    @Override
+    public CharSequence read() throws ApeerEnvironmentException {
+        var value = system.getenv(key);
+        if (value == null || value.isBlank()) {
+            throw new ApeerEnvironmentException("Could not find \"" + key + "\" in environment variables");
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "environment variable \"" + key + "\"";
+    }
+}
@@ -0,0 +1,58 @@
+package com.apeer.sdk;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the WFE_INPUT_JSON from a UTF-8 file. Large files are memory-mapped and parsed in place instead of being copied onto the heap
+ */
+public class FileInputSource implements IInputSource {
+    static final long DEFAULT_MAPPING_THRESHOLD = 1024 * 1024;
+
+    private final Path path;
+    private final long mappingThreshold;
+
+    public FileInputSource(Path path) {
+        this(path, DEFAULT_MAPPING_THRESHOLD);
+    }
+
+    /**
+     * @param path             The file that contains the input JSON
+     * @param mappingThreshold Files with at least this many bytes are memory-mapped
+     */
+    public FileInputSource(Path path, long mappingThreshold) {
+        Validate.notNull(path);
+
+        this.path = path;
+        this.mappingThreshold = mappingThreshold;
+    }
+
+    @Override
+    public CharSequence read() throws ApeerEnvironmentException {
+        try {
+            var size = Files.size(path);
+            if (size < mappingThreshold) {
+                return Files.readString(path);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new ApeerEnvironmentException("Input file \"" + path + "\" is larger than 2 GiB");
+            }
+
+            try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return new MappedJsonText(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+        } catch (IOException ex) {
+            throw new ApeerEnvironmentException("Could not read inputs from \"" + path + "\"", ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "file \"" + path + "\"";
+    }
+}
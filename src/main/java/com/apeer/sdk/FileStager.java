@@ -0,0 +1,285 @@
+package com.apeer.sdk;
+
+import org.apache.commons.lang3.Validate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stages files to the output folder through an {@link IFileOutput} on the shared I/O executor of the ADK. No more than the configured number of files
+ * are staged at the same time, so staging leaves room for the I/O of the module. A caller that waits for files stages queued files itself, so staging
+ * finishes even when every thread of the I/O executor is a module task that waits for its files
+ */
+class FileStager {
+    static final String STAGE_PHASE = "output.stage";
+
+    private final IFileOutput fileOutput;
+    private final IMetricsSink metrics;
+    private final int parallelism;
+    private final ManagedExecutors executors;
+    private final Semaphore openFiles;
+    private final Queue<PendingOutput> pending = new ConcurrentLinkedQueue<>();
+    private final Queue<Runnable> queuedFiles = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger runningStagers = new AtomicInteger();
+    private volatile boolean cancelled;
+
+    /**
+     * @param openFiles Permits for the files that are staged at the same time, shared with everything else the ADK opens
+     */
+    FileStager(IFileOutput fileOutput, int parallelism, IMetricsSink metrics, ManagedExecutors executors, Semaphore openFiles) {
+        Validate.notNull(fileOutput);
+        Validate.isTrue(parallelism > 0, "parallelism must be positive");
+        Validate.notNull(metrics);
+        Validate.notNull(executors);
+        Validate.notNull(openFiles);
+
+        this.fileOutput = fileOutput;
+        this.metrics = metrics;
+        this.parallelism = parallelism;
+        this.executors = executors;
+        this.openFiles = openFiles;
+    }
+
+    /**
+     * Stages {@code sources[i]} to {@code targets[i]} for all i. Every file is attempted even if some of them fail
+     *
+     * @param key The output key the files belong to
+     * @return The staged files in the same order as the given sources
+     * @throws ApeerOutputException Containing all failed files when at least one file could not be staged
+     */
+    StagedFile[] stage(String key, Path[] sources, Path[] targets) throws ApeerOutputException {
+        Validate.isTrue(sources.length == targets.length, "sources and targets must have the same length");
+
+        if (sources.length == 1 || parallelism == 1) {
+            return stageSerially(key, sources, targets);
+        }
+
+        var futures = submit(key, sources, targets);
+        runQueuedFiles();
+        var failures = new ArrayList<Exception>();
+        var stagedFiles = await(futures, failures);
+        throwIfFailed(failures, sources.length);
+        return stagedFiles;
+    }
+
+    /**
+     * Queues {@code sources[i]} to be staged to {@code targets[i]} for all i and returns immediately. Failures are reported by {@link #awaitPending()}
+     *
+     * @param key The output key the files belong to
+     */
+    void stageAsync(String key, Path[] sources, Path[] targets) {
+        Validate.isTrue(sources.length == targets.length, "sources and targets must have the same length");
+
+        pending.add(new PendingOutput(key, submit(key, sources, targets)));
+    }
+
+    /**
+     * Waits until all files queued with {@link #stageAsync(String, Path[], Path[])} are staged
+     *
+     * @return All staged files
+     * @throws ApeerOutputException Containing all output keys with files that could not be staged
+     */
+    StagedFile[] awaitPending() throws ApeerOutputException {
+        var stagedFiles = new ArrayList<StagedFile>();
+        var failures = new ArrayList<Exception>();
+        var failedKeys = new ArrayList<String>();
+        runQueuedFiles();
+        PendingOutput output;
+        while ((output = pending.poll()) != null) {
+            var outputFailures = new ArrayList<Exception>();
+            stagedFiles.addAll(Arrays.asList(await(output.futures, outputFailures)));
+            if (!outputFailures.isEmpty()) {
+                failedKeys.add(output.key);
+                failures.addAll(outputFailures);
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            var message = new StringBuilder("Could not stage file outputs " + failedKeys + ":");
+            appendFailures(message, failures);
+            var exception = new ApeerOutputException(message.toString());
+            failures.forEach(exception::addSuppressed);
+            throw exception;
+        }
+        return stagedFiles.toArray(new StagedFile[0]);
+    }
+
+    /**
+     * Drops all files that did not start staging yet, including files queued later. Files that are being staged are finished but not waited for
+     */
+    void cancelPending() {
+        cancelled = true;
+        runQueuedFiles();
+        pending.clear();
+    }
+
+    /**
+     * Stages the queued files on the calling thread until none are left. The stagers started on the I/O executor may still be queued behind the
+     * caller, files they already took are finished by them
+     */
+    private void runQueuedFiles() {
+        Runnable file;
+        while ((file = queuedFiles.poll()) != null) {
+            file.run();
+        }
+    }
+
+    private List<Future<StagedFile>> submit(String key, Path[] sources, Path[] targets) {
+        var futures = new ArrayList<Future<StagedFile>>(sources.length);
+        for (int i = 0; i < sources.length; i++) {
+            var source = sources[i];
+            var target = targets[i];
+            var future = new CompletableFuture<StagedFile>();
+            queuedFiles.add(() -> {
+                if (cancelled) {
+                    future.cancel(false);
+                    return;
+                }
+                try {
+                    future.complete(stageFile(key, source, target));
+                } catch (Exception ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+            futures.add(future);
+        }
+        startStagers();
+        return futures;
+    }
+
+    /**
+     * Starts tasks on the I/O executor that stage queued files one after another, up to the parallelism
+     */
+    private void startStagers() {
+        while (!queuedFiles.isEmpty()) {
+            var running = runningStagers.get();
+            if (running >= parallelism) {
+                return;
+            }
+            if (runningStagers.compareAndSet(running, running + 1)) {
+                try {
+                    executors.getIoExecutor().execute(this::stageQueuedFiles);
+                } catch (RejectedExecutionException | IllegalStateException ex) {
+                    runningStagers.decrementAndGet();
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    private void stageQueuedFiles() {
+        do {
+            Runnable file;
+            while ((file = queuedFiles.poll()) != null) {
+                file.run();
+            }
+            runningStagers.decrementAndGet();
+            // a file queued while this stager was finishing may have seen it still running and not started another one
+        } while (!queuedFiles.isEmpty() && tryRestart());
+    }
+
+    private boolean tryRestart() {
+        while (true) {
+            var running = runningStagers.get();
+            if (running >= parallelism) {
+                return false;
+            }
+            if (runningStagers.compareAndSet(running, running + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private static StagedFile[] await(List<Future<StagedFile>> futures, List<Exception> failures) throws ApeerOutputException {
+        var stagedFiles = new StagedFile[futures.size()];
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                stagedFiles[i] = futures.get(i).get();
+            } catch (ExecutionException ex) {
+                failures.add(ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                throw new ApeerOutputException("Interrupted while staging files", ex);
+            }
+        }
+        return stagedFiles;
+    }
+
+    private StagedFile stageFile(String key, Path source, Path target) throws ApeerOutputException {
+        try {
+            openFiles.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ApeerOutputException("Interrupted while staging \"" + source + "\"", ex);
+        }
+
+        try {
+            if (!metrics.isEnabled()) {
+                return fileOutput.stageFile(source, target);
+            }
+
+            var start = System.nanoTime();
+            var stagedFile = fileOutput.stageFile(source, target);
+            metrics.record(STAGE_PHASE, key, System.nanoTime() - start, stagedFile.getSize());
+            return stagedFile;
+        } finally {
+            openFiles.release();
+        }
+    }
+
+    private StagedFile[] stageSerially(String key, Path[] sources, Path[] targets) throws ApeerOutputException {
+        var stagedFiles = new StagedFile[sources.length];
+        var failures = new ArrayList<Exception>();
+        for (int i = 0; i < sources.length; i++) {
+            try {
+                stagedFiles[i] = stageFile(key, sources[i], targets[i]);
+            } catch (ApeerOutputException | RuntimeException ex) {
+                failures.add(ex);
+            }
+        }
+        throwIfFailed(failures, sources.length);
+        return stagedFiles;
+    }
+
+    private static void throwIfFailed(List<Exception> failures, int total) throws ApeerOutputException {
+        if (failures.isEmpty()) {
+            return;
+        }
+        if (failures.size() == 1 && total == 1 && failures.get(0) instanceof ApeerOutputException) {
+            throw (ApeerOutputException) failures.get(0);
+        }
+
+        var message = new StringBuilder("Could not stage " + failures.size() + " of " + total + " files:");
+        appendFailures(message, failures);
+        var exception = new ApeerOutputException(message.toString());
+        failures.forEach(exception::addSuppressed);
+        throw exception;
+    }
+
+    private static void appendFailures(StringBuilder message, List<Exception> failures) {
+        for (var failure : failures) {
+            message.append(System.lineSeparator()).append("  ").append(failure.getMessage());
+        }
+    }
+
+    private static class PendingOutput {
+        private final String key;
+        private final List<Future<StagedFile>> futures;
+
+        private PendingOutput(String key, List<Future<StagedFile>> futures) {
+            this.key = key;
+            this.futures = futures;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.apeer.sdk;
+
+/**
+ * How durable the output params file is once {@code finalizeModule()} returns
+ */
+public enum FsyncPolicy {
+    /**
+     * Leave flushing to the operating system. The file is still replaced atomically
+     */
+    NONE,
+
+    /**
+     * Force the content of the file to disk before it replaces the output params file
+     */
+    FILE,
+
+    /**
+     * Like {@link #FILE} and additionally force the folder to disk so the rename itself survives a crash
+     */
+    FILE_AND_FOLDER
+}
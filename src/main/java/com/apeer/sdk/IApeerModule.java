@@ -0,0 +1,15 @@
+package com.apeer.sdk;
+
+/**
+ * The work of a module, run by {@link ApeerWorker} once per job or by {@link ApeerPipeline} once per stage
+ */
+@FunctionalInterface
+public interface IApeerModule {
+
+    /**
+     * @param adk The ADK of the job, reading the job's inputs and writing to the job's output folder. {@code finalizeModule()} is called by the worker
+     *            or pipeline afterwards unless the module already called it
+     * @throws Exception Fails the job, the output params of a failed job are not written
+     */
+    void run(ApeerDevKit adk) throws Exception;
+}
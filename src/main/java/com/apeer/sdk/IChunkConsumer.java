@@ -0,0 +1,19 @@
+package com.apeer.sdk;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Processes the chunks of a file input, see {@link ApeerDevKit#readFileInput(String, IChunkConsumer)}. Chunks are passed from several threads at the
+ * same time and in no particular order
+ */
+@FunctionalInterface
+public interface IChunkConsumer {
+
+    /**
+     * @param offset The position of the first byte of the chunk in the file
+     * @param chunk  The bytes of the chunk from its position to its limit. The buffer is reused for another chunk once this method returns, so copy
+     *               what you need to keep
+     * @throws Exception Stops reading the file, {@code readFileInput} throws it
+     */
+    void accept(long offset, ByteBuffer chunk) throws Exception;
+}
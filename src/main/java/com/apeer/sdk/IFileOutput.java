@@ -1,10 +1,73 @@
 package com.apeer.sdk;
 
 import com.apeer.sdk.ApeerOutputException;
+import org.apache.commons.lang3.Validate;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 public interface IFileOutput {
     void writeTextToFile(String filePath, String text) throws ApeerOutputException;
     void moveFile(Path sourcePath, Path targetPath) throws ApeerOutputException;
+
+    /**
+     * Writes JSON that is streamed by the ADK. The default collects the content in memory and passes it to {@link #writeTextToFile(String, String)},
+     * implementations that can write the content without holding all of it override it
+     */
+    default void writeJsonToFile(String filePath, IJsonContent content) throws ApeerOutputException {
+        Validate.notNull(filePath);
+        Validate.notNull(content);
+
+        var writer = new StringWriter();
+        try {
+            content.writeTo(writer);
+        } catch (IOException ex) {
+            throw new ApeerOutputException("Could not write \"" + filePath + "\"", ex);
+        }
+        writeTextToFile(filePath, writer.toString());
+    }
+
+    /**
+     * Creates a new file in the output folder, together with its parent folders, for content the module writes directly
+     *
+     * @throws ApeerOutputException When the file already exists or could not be created
+     */
+    default WritableByteChannel openFile(Path targetPath) throws ApeerOutputException {
+        Validate.notNull(targetPath);
+
+        try {
+            var targetFolder = targetPath.toAbsolutePath().getParent();
+            if (targetFolder != null) {
+                Files.createDirectories(targetFolder);
+            }
+            return FileChannel.open(targetPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        } catch (FileAlreadyExistsException ex) {
+            throw new ApeerOutputException("Could not create \"" + targetPath + "\" because it already exists", ex);
+        } catch (IOException ex) {
+            throw new ApeerOutputException("Could not create \"" + targetPath + "\"", ex);
+        }
+    }
+
+    /**
+     * Brings a file into the output folder like {@link #moveFile(Path, Path)} and describes how. The ADK stages all files through this method.
+     * Implementations that know the strategy or checksum of a staged file override it, the default calls {@code moveFile} and reports no strategy
+     *
+     * @return The staged file with the size of the source
+     */
+    default StagedFile stageFile(Path sourcePath, Path targetPath) throws ApeerOutputException {
+        long size;
+        try {
+            size = Files.size(sourcePath);
+        } catch (IOException ex) {
+            throw new ApeerOutputException("Could not read \"" + sourcePath + "\"", ex);
+        }
+        moveFile(sourcePath, targetPath);
+        return new StagedFile(sourcePath, targetPath, null, size);
+    }
 }
@@ -0,0 +1,10 @@
+package com.apeer.sdk;
+
+public interface IInputSource {
+
+    /**
+     * @return The WFE_INPUT_JSON text
+     * @throws ApeerEnvironmentException When the text could not be read
+     */
+    CharSequence read() throws ApeerEnvironmentException;
+}
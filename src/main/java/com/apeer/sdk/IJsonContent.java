@@ -0,0 +1,9 @@
+package com.apeer.sdk;
+
+import java.io.IOException;
+import java.io.Writer;
+
+@FunctionalInterface
+public interface IJsonContent {
+    void writeTo(Writer writer) throws IOException;
+}
@@ -0,0 +1,23 @@
+package com.apeer.sdk;
+
+import java.util.function.Supplier;
+
+public interface ILogger {
+
+    /**
+     * @return true when messages of this level are written. Use it to skip preparing data for a message that would be discarded anyway
+     */
+    boolean isEnabled(LogLevel level);
+
+    /**
+     * Writes a message. Must not block the calling thread on I/O
+     *
+     * @param message Builds the message, only called when the level is enabled
+     */
+    void log(LogLevel level, Supplier<String> message);
+
+    /**
+     * Waits until all messages logged so far are written
+     */
+    void flush();
+}
@@ -0,0 +1,27 @@
+package com.apeer.sdk;
+
+/**
+ * Receives timings and sizes of the phases the ADK runs through. Implementations must be thread-safe, file outputs are staged on worker threads
+ */
+public interface IMetricsSink {
+
+    /**
+     * @return false when records are discarded anyway. The ADK then skips taking the timings
+     */
+    boolean isEnabled();
+
+    /**
+     * @param phase The phase that was measured, e.g. "input.decode" or "output.stage"
+     * @param key   The input or output key the measurement belongs to or null when it belongs to the whole module
+     * @param nanos The duration of the phase in nanoseconds
+     * @param bytes The amount of data processed in the phase. Characters for JSON text, bytes for files, 0 when not applicable
+     */
+    void record(String phase, String key, long nanos, long bytes);
+
+    /**
+     * Called once by {@code finalizeModule()} after the output params file was written
+     *
+     * @throws ApeerOutputException When the metrics could not be written
+     */
+    void flush() throws ApeerOutputException;
+}
@@ -0,0 +1,82 @@
+package com.apeer.sdk;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The file output of a pipeline stage. Text and JSON files are kept in memory and staged files are not copied at all: the output folder path the
+ * module gets back stands for the original file and {@link #resolve(Object)} turns it back into the original path for the next stage. Files that are
+ * written directly are written to disk because the next stage reads them by path
+ */
+final class InMemoryFileOutput implements IFileOutput {
+    private final Map<String, String> files = new ConcurrentHashMap<>();
+    private final Map<String, String> stagedFiles = new ConcurrentHashMap<>();
+
+    @Override
+    public void writeTextToFile(String filePath, String text) {
+        Validate.notNull(filePath);
+        Validate.notNull(text);
+
+        files.put(filePath, text);
+    }
+
+    @Override
+    public void moveFile(Path sourcePath, Path targetPath) throws ApeerOutputException {
+        stageFile(sourcePath, targetPath);
+    }
+
+    @Override
+    public StagedFile stageFile(Path sourcePath, Path targetPath) throws ApeerOutputException {
+        Validate.notNull(sourcePath);
+        Validate.notNull(targetPath);
+
+        long size;
+        try {
+            size = Files.size(sourcePath);
+        } catch (IOException ex) {
+            throw new ApeerOutputException("Could not read \"" + sourcePath + "\"", ex);
+        }
+        if (stagedFiles.putIfAbsent(targetPath.toString(), sourcePath.toString()) != null) {
+            throw new ApeerOutputException("Could not stage to \"" + targetPath + "\" because it already exists");
+        }
+        return new StagedFile(sourcePath, targetPath, null, size, null);
+    }
+
+    /**
+     * Replaces the output folder paths of staged files by the paths of the original files
+     *
+     * @param value An output value, only strings and string arrays can be file outputs
+     * @return The value with original paths
+     */
+    Object resolve(Object value) {
+        if (value instanceof String) {
+            return resolvePath((String) value);
+        }
+        if (value instanceof String[]) {
+            var paths = ((String[]) value).clone();
+            for (int i = 0; i < paths.length; i++) {
+                paths[i] = resolvePath(paths[i]);
+            }
+            return paths;
+        }
+        return value;
+    }
+
+    private String resolvePath(String value) {
+        if (stagedFiles.isEmpty()) {
+            return value;
+        }
+        try {
+            // the output value is the output folder and file name joined as strings, which may contain "//"
+            return stagedFiles.getOrDefault(Path.of(value).toString(), value);
+        } catch (InvalidPathException ex) {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,509 @@
+package com.apeer.sdk;
+
+import org.apache.commons.lang3.Validate;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads all inputs of a module into the fields of one object, as declared in the module_specification.json of the module. Everything that can be
+ * checked without the inputs is checked once when the binder is created: the input types of the specification, the fields they are bound to and their
+ * default values. Binding then validates all inputs in one pass, reports every problem at once and assigns the fields through precomputed
+ * {@link MethodHandle}s, so the module reads its inputs as plain fields afterwards
+ * <p>
+ * The target class is either a class with a constructor without parameters and non-final fields, or a record. A field or record component named like
+ * an input is bound to it, "inputImage" may also be named "input_image" in the specification. Inputs without a field are validated but not bound.
+ * Their strings and arrays are not decoded, only their first characters and the first item of arrays are checked
+ *
+ * <pre>{@code
+ * public class Inputs {
+ *     Path inputImage;
+ *     int threshold;
+ * }
+ *
+ * var inputs = adk.bindInputs(InputBinder.forClass(Inputs.class));
+ * }</pre>
+ *
+ * @param <T> The type of the object the inputs are bound to
+ */
+public final class InputBinder<T> {
+    public static final String MODULE_SPECIFICATION_FILE = "module_specification.json";
+
+    private final Class<T> type;
+    private final Binding[] bindings;
+    private final LazyJsonInput defaults;
+    private final MethodHandle constructor;
+    private final int recordComponents;
+
+    /**
+     * @param recordComponents The number of arguments of the record constructor or -1 when fields are assigned
+     */
+    private InputBinder(Class<T> type, Binding[] bindings, LazyJsonInput defaults, MethodHandle constructor, int recordComponents) {
+        this.type = type;
+        this.bindings = bindings;
+        this.defaults = defaults;
+        this.constructor = constructor;
+        this.recordComponents = recordComponents;
+    }
+
+    /**
+     * Creates a binder for the module_specification.json in the working directory
+     *
+     * @throws ApeerEnvironmentException When the specification could not be read, contains unsupported input types or does not match the class
+     */
+    public static <T> InputBinder<T> forClass(Class<T> type) throws ApeerEnvironmentException {
+        return forClass(type, Path.of(MODULE_SPECIFICATION_FILE));
+    }
+
+    /**
+     * @param type          The class the inputs are bound to
+     * @param specification The module_specification.json of the module
+     * @throws ApeerEnvironmentException When the specification could not be read, contains unsupported input types or does not match the class
+     */
+    public static <T> InputBinder<T> forClass(Class<T> type, Path specification) throws ApeerEnvironmentException {
+        Validate.notNull(specification);
+
+        String text;
+        try {
+            text = Files.readString(specification);
+        } catch (IOException ex) {
+            throw new ApeerEnvironmentException("Could not read module specification \"" + specification + "\"", ex);
+        }
+        return fromSpecification(type, text);
+    }
+
+    static <T> InputBinder<T> fromSpecification(Class<T> type, String specification) throws ApeerEnvironmentException {
+        Validate.notNull(type);
+        Validate.notNull(specification);
+
+        var inputs = readInputs(specification);
+        var defaults = readDefaults(inputs);
+        var lookup = privateLookup(type);
+
+        var components = RecordComponents.of(type);
+        var record = components != null;
+        var targets = record ? components.targets() : fieldTargets(type);
+
+        var bindings = new ArrayList<Binding>();
+        var boundKeys = new TreeMap<String, Target>();
+        for (var target : targets) {
+            var key = findKey(inputs, target.name);
+            if (key == null) {
+                throw new ApeerEnvironmentException("\"" + target.name + "\" of " + type.getName() + " is not an input of the module specification");
+            }
+            boundKeys.put(key, target);
+        }
+
+        for (var input : inputs.entrySet()) {
+            var key = input.getKey();
+            var inputType = readType(key, input.getValue());
+            var target = boundKeys.get(key);
+            var javaType = target == null ? inputType.getJavaTypes().get(0) : target.type;
+            if (!inputType.getJavaTypes().contains(javaType)) {
+                throw new ApeerEnvironmentException("Input \"" + key + "\" of type \"" + inputType.getName() + "\" cannot be bound to \"" + target.name
+                        + "\" of " + type.getName() + ", use one of " + inputType.getJavaTypes());
+            }
+
+            var setter = target == null || record ? null : setter(lookup, target.field);
+            var argument = target == null || !record ? -1 : target.index;
+            bindings.add(new Binding(key, inputType, javaType, setter, argument));
+        }
+
+        var binder = new InputBinder<>(type, bindings.toArray(new Binding[0]), defaults, constructor(lookup, type, components),
+                record ? components.names.length : -1);
+        binder.validateDefaults();
+        return binder;
+    }
+
+    /**
+     * @return The input keys of the module specification
+     */
+    List<String> keys() {
+        var keys = new ArrayList<String>(bindings.length);
+        for (var binding : bindings) {
+            keys.add(binding.key);
+        }
+        return keys;
+    }
+
+    /**
+     * Validates all inputs and creates the object with the bound values
+     *
+     * @throws ApeerInputException When inputs without a default value are missing or have the wrong type, listing all of them
+     */
+    T bind(LazyJsonInput input) throws ApeerInputException {
+        var errors = new ArrayList<String>();
+        var values = new Object[bindings.length];
+        for (int i = 0; i < bindings.length; i++) {
+            var binding = bindings[i];
+            var source = input.has(binding.key) ? input : defaults.has(binding.key) ? defaults : null;
+            if (source == null) {
+                errors.add("\"" + binding.key + "\" is missing");
+                continue;
+            }
+            try {
+                if (binding.setter != null || binding.argument >= 0) {
+                    values[i] = read(source, binding.key, binding.javaType);
+                } else {
+                    validate(source, binding.key, binding.javaType);
+                }
+            } catch (JSONException | InvalidPathException ex) {
+                errors.add("\"" + binding.key + "\" is not of type \"" + binding.inputType.getName() + "\"");
+            }
+        }
+
+        if (!errors.isEmpty()) {
+            throw new ApeerInputException("Inputs do not match the module specification: " + String.join(", ", errors));
+        }
+        return create(values);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T create(Object[] values) throws ApeerInputException {
+        try {
+            if (recordComponents >= 0) {
+                var arguments = new Object[recordComponents];
+                for (int i = 0; i < bindings.length; i++) {
+                    if (bindings[i].argument >= 0) {
+                        arguments[bindings[i].argument] = values[i];
+                    }
+                }
+                return (T) (Object) constructor.invokeExact(arguments);
+            }
+
+            var instance = (Object) constructor.invokeExact();
+            for (int i = 0; i < bindings.length; i++) {
+                if (bindings[i].setter != null) {
+                    bindings[i].setter.invokeExact(instance, values[i]);
+                }
+            }
+            return (T) instance;
+        } catch (Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            var cause = ex instanceof Exception ? (Exception) ex : new RuntimeException(ex);
+            throw new ApeerInputException("Could not create " + type.getName() + " from inputs", cause);
+        }
+    }
+
+    private void validateDefaults() throws ApeerEnvironmentException {
+        for (var binding : bindings) {
+            if (!defaults.has(binding.key)) {
+                continue;
+            }
+            try {
+                read(defaults, binding.key, binding.javaType);
+            } catch (JSONException | InvalidPathException ex) {
+                throw new ApeerEnvironmentException("The default value of input \"" + binding.key + "\" is not of type \"" + binding.inputType.getName()
+                        + "\"", ex);
+            }
+        }
+    }
+
+    private static Object read(LazyJsonInput input, String key, Class<?> javaType) throws JSONException {
+        if (javaType == String.class) {
+            return input.getString(key);
+        } else if (javaType == Path.class) {
+            return Path.of(input.getString(key));
+        } else if (javaType == int.class || javaType == Integer.class) {
+            return readInteger(input, key, Integer.MIN_VALUE, Integer.MAX_VALUE).intValue();
+        } else if (javaType == long.class || javaType == Long.class) {
+            return readInteger(input, key, Long.MIN_VALUE, Long.MAX_VALUE).longValue();
+        } else if (javaType == double.class || javaType == Double.class) {
+            var value = input.get(key);
+            if (!(value instanceof Number)) {
+                throw new JSONException("\"" + key + "\" is not a number");
+            }
+            return ((Number) value).doubleValue();
+        } else if (javaType == boolean.class || javaType == Boolean.class) {
+            var value = input.get(key);
+            if (!(value instanceof Boolean)) {
+                throw new JSONException("\"" + key + "\" is not a boolean");
+            }
+            return value;
+        } else if (javaType == int[].class) {
+            return input.getIntArray(key);
+        } else if (javaType == long[].class) {
+            return input.getLongArray(key);
+        } else if (javaType == double[].class) {
+            return input.getDoubleArray(key);
+        } else if (javaType == boolean[].class) {
+            return input.getBooleanArray(key);
+        } else if (javaType == String[].class) {
+            return readStrings(input.getJSONArray(key));
+        } else if (javaType == Path[].class) {
+            var strings = readStrings(input.getJSONArray(key));
+            var paths = new Path[strings.length];
+            for (int i = 0; i < strings.length; i++) {
+                paths[i] = Path.of(strings[i]);
+            }
+            return paths;
+        }
+        throw new IllegalStateException("Unsupported type " + javaType);
+    }
+
+    /**
+     * Checks an input that is not bound. Strings and arrays are checked from the index without decoding them, so a large value is not decoded only to
+     * be dropped. Other values are short and read as usual
+     */
+    private static void validate(LazyJsonInput input, String key, Class<?> javaType) throws JSONException {
+        var prefix = input.peek(key);
+        if (prefix == null || javaType != String.class && !javaType.isArray()) {
+            read(input, key, javaType);
+            return;
+        }
+        if (!startsLike(prefix, javaType)) {
+            throw new JSONException("\"" + key + "\" is not of type " + javaType.getSimpleName());
+        }
+    }
+
+    private static boolean startsLike(String prefix, Class<?> javaType) {
+        if (javaType == String.class) {
+            return prefix.equals("\"") || prefix.equals("'");
+        }
+        if (prefix.charAt(0) != '[') {
+            return false;
+        }
+        var item = prefix.length() > 1 ? prefix.charAt(1) : ']';
+        if (item == ']') {
+            return true;
+        }
+        var itemType = javaType.getComponentType();
+        if (itemType == String.class) {
+            return item == '"' || item == '\'';
+        }
+        if (itemType == boolean.class) {
+            return item == 't' || item == 'f';
+        }
+        return item == '-' || Character.isDigit(item);
+    }
+
+    private static Number readInteger(LazyJsonInput input, String key, long min, long max) throws JSONException {
+        var value = input.get(key);
+        if (!(value instanceof Integer || value instanceof Long) || ((Number) value).longValue() < min || ((Number) value).longValue() > max) {
+            throw new JSONException("\"" + key + "\" is not an integer");
+        }
+        return (Number) value;
+    }
+
+    private static String[] readStrings(JSONArray array) throws JSONException {
+        var strings = new String[array.length()];
+        for (int i = 0; i < strings.length; i++) {
+            var item = array.get(i);
+            if (!(item instanceof String)) {
+                throw new JSONException("Item " + i + " is not a string");
+            }
+            strings[i] = (String) item;
+        }
+        return strings;
+    }
+
+    /**
+     * @return The inputs of the specification by key, sorted so problems are always reported in the same order
+     */
+    private static Map<String, JSONObject> readInputs(String specification) throws ApeerEnvironmentException {
+        try {
+            var inputs = new JSONObject(specification).getJSONObject("spec").getJSONObject("inputs");
+            var sorted = new TreeMap<String, JSONObject>();
+            for (var key : inputs.keySet()) {
+                sorted.put(key, inputs.getJSONObject(key));
+            }
+            return sorted;
+        } catch (JSONException ex) {
+            throw new ApeerEnvironmentException("Could not read the inputs of the module specification", ex);
+        }
+    }
+
+    private static InputType readType(String key, JSONObject input) throws ApeerEnvironmentException {
+        for (var property : input.keySet()) {
+            if (property.startsWith(InputType.PREFIX)) {
+                var type = InputType.fromName(property.substring(InputType.PREFIX.length()));
+                if (type == null) {
+                    throw new ApeerEnvironmentException("Input \"" + key + "\" has the unsupported type \"" + property + "\"");
+                }
+                return type;
+            }
+        }
+        throw new ApeerEnvironmentException("Input \"" + key + "\" of the module specification has no type");
+    }
+
+    /**
+     * Collects the default values of all inputs into one JSON object, so they are read like inputs
+     */
+    private static LazyJsonInput readDefaults(Map<String, JSONObject> inputs) throws ApeerEnvironmentException {
+        var json = new StringBuilder("{");
+        for (var input : inputs.entrySet()) {
+            if (!input.getValue().has("default")) {
+                continue;
+            }
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            try {
+                json.append(JSONObject.quote(input.getKey())).append(':').append(JSONObject.valueToString(input.getValue().get("default")));
+            } catch (JSONException ex) {
+                throw new ApeerEnvironmentException("Could not read the default value of input \"" + input.getKey() + "\"", ex);
+            }
+        }
+        return LazyJsonInput.index(json.append('}'));
+    }
+
+    private static String findKey(Map<String, JSONObject> inputs, String name) {
+        if (inputs.containsKey(name)) {
+            return name;
+        }
+        var snakeCase = new StringBuilder();
+        for (var c : name.toCharArray()) {
+            if (Character.isUpperCase(c)) {
+                snakeCase.append('_').append(Character.toLowerCase(c));
+            } else {
+                snakeCase.append(c);
+            }
+        }
+        return inputs.containsKey(snakeCase.toString()) ? snakeCase.toString() : null;
+    }
+
+    private static List<Target> fieldTargets(Class<?> type) throws ApeerEnvironmentException {
+        var targets = new ArrayList<Target>();
+        for (var current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (var field : current.getDeclaredFields()) {
+                var modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                    continue;
+                }
+                if (Modifier.isFinal(modifiers)) {
+                    throw new ApeerEnvironmentException("Field \"" + field.getName() + "\" of " + type.getName() + " must not be final to bind an input to it");
+                }
+                targets.add(new Target(field.getName(), field.getType(), field, -1));
+            }
+        }
+        return targets;
+    }
+
+    private static MethodHandles.Lookup privateLookup(Class<?> type) throws ApeerEnvironmentException {
+        try {
+            return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        } catch (IllegalAccessException ex) {
+            throw new ApeerEnvironmentException("Cannot access " + type.getName() + ", open its package to the ADK", ex);
+        }
+    }
+
+    private static MethodHandle setter(MethodHandles.Lookup lookup, Field field) throws ApeerEnvironmentException {
+        try {
+            return lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, Object.class));
+        } catch (IllegalAccessException ex) {
+            throw new ApeerEnvironmentException("Cannot assign field \"" + field.getName() + "\" of " + field.getDeclaringClass().getName(), ex);
+        }
+    }
+
+    private static MethodHandle constructor(MethodHandles.Lookup lookup, Class<?> type, RecordComponents components) throws ApeerEnvironmentException {
+        try {
+            if (components != null) {
+                return components.constructor(lookup);
+            }
+            return lookup.findConstructor(type, MethodType.methodType(void.class)).asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            throw new ApeerEnvironmentException(type.getName() + " needs a constructor without parameters to bind inputs to it", ex);
+        }
+    }
+
+    private static final class Binding {
+        private final String key;
+        private final InputType inputType;
+        private final Class<?> javaType;
+        private final MethodHandle setter;
+        private final int argument;
+
+        private Binding(String key, InputType inputType, Class<?> javaType, MethodHandle setter, int argument) {
+            this.key = key;
+            this.inputType = inputType;
+            this.javaType = javaType;
+            this.setter = setter;
+            this.argument = argument;
+        }
+    }
+
+    /**
+     * A field or record component
+     */
+    private static final class Target {
+        private final String name;
+        private final Class<?> type;
+        private final Field field;
+        private final int index;
+
+        private Target(String name, Class<?> type, Field field, int index) {
+            this.name = name;
+            this.type = type;
+            this.field = field;
+            this.index = index;
+        }
+    }
+
+    /**
+     * The components of a record. The ADK targets Java 11, so records are only recognized at runtime through {@code Class.getRecordComponents}
+     */
+    private static final class RecordComponents {
+        private final Class<?> type;
+        private final String[] names;
+        private final Class<?>[] types;
+
+        private RecordComponents(Class<?> type, String[] names, Class<?>[] types) {
+            this.type = type;
+            this.names = names;
+            this.types = types;
+        }
+
+        /**
+         * @return The components or null when the type is not a record or the JVM does not know records
+         */
+        private static RecordComponents of(Class<?> type) throws ApeerEnvironmentException {
+            try {
+                var components = (Object[]) Class.class.getMethod("getRecordComponents").invoke(type);
+                if (components == null) {
+                    return null;
+                }
+
+                var names = new String[components.length];
+                var types = new Class<?>[components.length];
+                for (int i = 0; i < components.length; i++) {
+                    names[i] = (String) components[i].getClass().getMethod("getName").invoke(components[i]);
+                    types[i] = (Class<?>) components[i].getClass().getMethod("getType").invoke(components[i]);
+                }
+                return new RecordComponents(type, names, types);
+            } catch (NoSuchMethodException ex) {
+                return null;
+            } catch (ReflectiveOperationException ex) {
+                throw new ApeerEnvironmentException("Could not read the components of record " + type.getName(), ex);
+            }
+        }
+
+        private List<Target> targets() {
+            var targets = new ArrayList<Target>();
+            for (int i = 0; i < names.length; i++) {
+                targets.add(new Target(names[i], types[i], null, i));
+            }
+            return targets;
+        }
+
+        private MethodHandle constructor(MethodHandles.Lookup lookup) throws NoSuchMethodException, IllegalAccessException {
+            return lookup.findConstructor(type, MethodType.methodType(void.class, types))
+                    .asSpreader(Object[].class, types.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.apeer.sdk;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Reads input files once on a background thread so they are in the page cache when the module reads them. The bytes are read with positional reads
+ * into one reused buffer and discarded, so the prefetcher itself holds no more than {@link #BUFFER_SIZE} of memory; the total number of bytes read is
+ * capped so a large input cannot evict everything else from the page cache
+ * <p>
+ * An input is a hit when all its files were read before the module first read the input and a miss otherwise
+ */
+final class InputPrefetcher {
+    static final String PREFETCH_PHASE = "input.prefetch";
+    static final int BUFFER_SIZE = 1 << 20;
+
+    private final Map<String, Target> targets = new LinkedHashMap<>();
+    private final long maxBytes;
+    private final ILogger logger;
+    private volatile boolean cancelled;
+    private Thread thread;
+
+    /**
+     * @param files    The files of each input key in the order they are read
+     * @param maxBytes The number of bytes after which prefetching stops, later files are only read partly or not at all
+     */
+    InputPrefetcher(Map<String, List<Path>> files, long maxBytes, ILogger logger) {
+        Validate.notNull(files);
+        Validate.isTrue(maxBytes > 0, "maxBytes must be positive");
+        Validate.notNull(logger);
+
+        files.forEach((key, paths) -> targets.put(key, new Target(key, List.copyOf(paths))));
+        this.maxBytes = maxBytes;
+        this.logger = logger;
+    }
+
+    /**
+     * Starts reading on a daemon thread, does nothing when there are no files
+     */
+    synchronized void start() {
+        if (thread != null || targets.isEmpty()) {
+            return;
+        }
+        thread = new Thread(this::run, "adk-prefetch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Waits until all files were read or prefetching was cancelled
+     *
+     * @return false when the timeout elapsed first
+     */
+    boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        Thread started;
+        synchronized (this) {
+            started = thread;
+        }
+        if (started == null) {
+            return true;
+        }
+        started.join(Math.max(1, unit.toMillis(timeout)));
+        return !started.isAlive();
+    }
+
+    /**
+     * Stops reading after the current chunk. Inputs whose files were not read completely yet count as misses when they are read later
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Records that the module reads an input, only the first read of each input counts
+     */
+    void recordAccess(String key) {
+        var target = targets.get(key);
+        if (target != null) {
+            target.recordAccess();
+        }
+    }
+
+    /**
+     * Cancels prefetching and reports the result of every input: as metric with the time and bytes read, and as one summary log message
+     */
+    void report(IMetricsSink metrics) {
+        cancel();
+
+        var hits = 0;
+        var misses = 0;
+        var bytes = 0L;
+        for (var target : targets.values()) {
+            var outcome = target.getOutcome();
+            if (outcome == Outcome.HIT) {
+                hits++;
+            } else if (outcome == Outcome.MISS) {
+                misses++;
+            }
+            bytes += target.bytes;
+            metrics.record(PREFETCH_PHASE, target.key, target.nanos, target.bytes);
+            log(LogLevel.DEBUG, () -> "Prefetched " + target.bytes + " bytes of input \"" + target.key + "\" in " + target.nanos / 1_000_000 + " ms: "
+                    + target.getOutcome().name().toLowerCase());
+        }
+
+        var totalBytes = bytes;
+        var totalHits = hits;
+        var totalMisses = misses;
+        log(LogLevel.INFO, () -> "Prefetched " + totalBytes + " bytes of " + targets.size() + " inputs: " + totalHits + " hits, " + totalMisses
+                + " misses, " + (targets.size() - totalHits - totalMisses) + " not read by the module");
+    }
+
+    private void run() {
+        var buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        var remaining = maxBytes;
+        for (var target : targets.values()) {
+            var start = System.nanoTime();
+            var complete = true;
+            for (var path : target.paths) {
+                if (cancelled || remaining <= 0) {
+                    complete = false;
+                    break;
+                }
+                var read = read(path, buffer, remaining);
+                target.bytes += read.bytes;
+                remaining -= read.bytes;
+                complete &= read.complete;
+            }
+            target.nanos = System.nanoTime() - start;
+            if (complete) {
+                target.complete = true;
+            }
+        }
+    }
+
+    private Read read(Path path, ByteBuffer buffer, long maxBytes) {
+        if (!Files.isRegularFile(path)) {
+            return new Read(0, true);
+        }
+
+        var position = 0L;
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var size = channel.size();
+            var limit = Math.min(size, maxBytes);
+            while (position < limit && !cancelled) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), limit - position));
+                var read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+            }
+            return new Read(position, position >= size);
+        } catch (IOException ex) {
+            // the module reports the error when it reads the file itself
+            log(LogLevel.DEBUG, () -> "Could not prefetch \"" + path + "\": " + ex.getMessage());
+            return new Read(position, false);
+        }
+    }
+
+    private void log(LogLevel level, Supplier<String> message) {
+        logger.log(level, message);
+    }
+
+    private enum Outcome {
+        HIT, MISS, UNUSED
+    }
+
+    private static final class Read {
+        private final long bytes;
+        private final boolean complete;
+
+        private Read(long bytes, boolean complete) {
+            this.bytes = bytes;
+            this.complete = complete;
+        }
+    }
+
+    private static final class Target {
+        private final String key;
+        private final List<Path> paths;
+        private volatile long bytes;
+        private volatile long nanos;
+        private volatile boolean complete;
+        private Outcome outcome = Outcome.UNUSED;
+
+        private Target(String key, List<Path> paths) {
+            this.key = key;
+            this.paths = paths;
+        }
+
+        private synchronized void recordAccess() {
+            if (outcome == Outcome.UNUSED) {
+                outcome = complete ? Outcome.HIT : Outcome.MISS;
+            }
+        }
+
+        private synchronized Outcome getOutcome() {
+            return outcome;
+        }
+    }
+}
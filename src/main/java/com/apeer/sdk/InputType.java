@@ -0,0 +1,50 @@
+package com.apeer.sdk;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The input types of a module_specification.json, e.g. {@code "threshold": {"type:integer": {}}}, and the Java types an input of each type can be
+ * bound to. The first Java type is used to validate inputs that are not bound
+ */
+enum InputType {
+    STRING("string", String.class),
+    CHOICE("choice", String.class),
+    FILE("file", String.class, Path.class),
+    INTEGER("integer", int.class, Integer.class, long.class, Long.class),
+    NUMBER("number", double.class, Double.class),
+    BOOLEAN("boolean", boolean.class, Boolean.class),
+    CHOICE_BINARY("choice_binary", boolean.class, Boolean.class),
+    LIST_STRING("list[string]", String[].class),
+    LIST_FILE("list[file]", String[].class, Path[].class),
+    LIST_INTEGER("list[integer]", int[].class, long[].class),
+    LIST_NUMBER("list[number]", double[].class),
+    LIST_BOOLEAN("list[boolean]", boolean[].class);
+
+    static final String PREFIX = "type:";
+
+    private final String name;
+    private final List<Class<?>> javaTypes;
+
+    InputType(String name, Class<?>... javaTypes) {
+        this.name = name;
+        this.javaTypes = List.of(javaTypes);
+    }
+
+    /**
+     * @param name The name of the type without the "type:" prefix
+     * @return The type or null when the ADK does not support it
+     */
+    static InputType fromName(String name) {
+        return Arrays.stream(values()).filter(type -> type.name.equals(name)).findFirst().orElse(null);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    List<Class<?>> getJavaTypes() {
+        return javaTypes;
+    }
+}
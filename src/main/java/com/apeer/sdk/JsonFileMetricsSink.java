@@ -0,0 +1,86 @@
+package com.apeer.sdk;
+
+import org.apache.commons.lang3.Validate;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Collects metrics in memory and writes them as JSON file on flush, e.g.
+ * {@code {"metrics":[{"phase":"output.stage","key":"images","nanos":1200,"bytes":4096,"bytesPerSecond":3413333333}]}}
+ */
+final class JsonFileMetricsSink implements IMetricsSink {
+    private final IFileOutput fileOutput;
+    private final String filePath;
+    private final Queue<Record> records = new ConcurrentLinkedQueue<>();
+
+    JsonFileMetricsSink(IFileOutput fileOutput, String filePath) {
+        Validate.notNull(fileOutput);
+        Validate.notBlank(filePath);
+
+        this.fileOutput = fileOutput;
+        this.filePath = filePath;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void record(String phase, String key, long nanos, long bytes) {
+        records.add(new Record(phase, key, nanos, bytes));
+    }
+
+    @Override
+    public void flush() throws ApeerOutputException {
+        var snapshot = new ArrayList<>(records);
+        fileOutput.writeJsonToFile(filePath, writer -> write(writer, snapshot));
+    }
+
+    private static void write(Writer writer, Iterable<Record> records) throws IOException {
+        writer.write("{\"metrics\":[");
+        var first = true;
+        for (var record : records) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+            record.write(writer);
+        }
+        writer.write("]}");
+    }
+
+    private static final class Record {
+        private final String phase;
+        private final String key;
+        private final long nanos;
+        private final long bytes;
+
+        private Record(String phase, String key, long nanos, long bytes) {
+            this.phase = phase;
+            this.key = key;
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+
+        private void write(Writer writer) throws IOException {
+            writer.write("{\"phase\":");
+            writer.write(JSONObject.quote(phase));
+            if (key != null) {
+                writer.write(",\"key\":");
+                writer.write(JSONObject.quote(key));
+            }
+            writer.write(",\"nanos\":" + nanos);
+            writer.write(",\"bytes\":" + bytes);
+            if (bytes > 0 && nanos > 0) {
+                writer.write(",\"bytesPerSecond\":" + (long) (bytes * 1e9 / nanos));
+            }
+            writer.write('}');
+        }
+    }
+}
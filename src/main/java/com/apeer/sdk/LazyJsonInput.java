@@ -0,0 +1,495 @@
+package com.apeer.sdk;
+
+import org.apache.commons.lang3.Validate;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A JSON object whose members are decoded on first access. Construction only scans the text once to find where each top-level value starts and ends,
+ * so the cost of reading inputs follows what a module actually reads instead of how large WFE_INPUT_JSON is. Inputs that are already objects, e.g. the
+ * outputs of the previous module of an {@link ApeerPipeline}, are kept as they are and never serialized
+ */
+final class LazyJsonInput {
+    private final CharSequence text;
+    private final Map<String, Member> members;
+
+    private LazyJsonInput(CharSequence text, Map<String, Member> members) {
+        this.text = text;
+        this.members = members;
+    }
+
+    /**
+     * Indexes the top-level members of a JSON object without decoding their values
+     *
+     * @throws JSONException When the text is not a JSON object or there is more than whitespace after it
+     */
+    static LazyJsonInput index(CharSequence text) throws JSONException {
+        Validate.notNull(text);
+
+        var scanner = new Scanner(text);
+        var members = scanner.scanObject();
+        scanner.expectEnd();
+        return new LazyJsonInput(text, members);
+    }
+
+    boolean has(String key) {
+        return members.containsKey(key);
+    }
+
+    /**
+     * Wraps values that are already decoded, they are converted when they are read with another type, e.g. a {@code double[]} read as {@link JSONArray}
+     *
+     * @param values Values of the types {@link ApeerDevKit#setOutput(String, Object)} accepts
+     */
+    static LazyJsonInput of(Map<String, Object> values) {
+        Validate.notNull(values);
+
+        var members = new LinkedHashMap<String, Member>();
+        values.forEach((key, value) -> members.put(key, new Member(value == null ? JSONObject.NULL : value)));
+        return new LazyJsonInput("", members);
+    }
+
+    /**
+     * @return The keys of all top-level members in the order of the text
+     */
+    Set<String> keys() {
+        return members.keySet();
+    }
+
+    /**
+     * Checks the type of a value without decoding it
+     *
+     * @return true when the value of the key is a string or an array that starts with a string
+     */
+    boolean holdsStrings(String key) {
+        var member = members.get(key);
+        if (member == null) {
+            return false;
+        }
+        if (member.live) {
+            var value = member.value;
+            if (value instanceof Collection) {
+                var items = (Collection<?>) value;
+                value = items.isEmpty() ? null : items.iterator().next();
+            }
+            return value instanceof String || value instanceof String[];
+        }
+        var prefix = peek(member);
+        var last = prefix.charAt(prefix.length() - 1);
+        return last == '"' || last == '\'';
+    }
+
+    /**
+     * Returns the first character of a value and, for arrays, the first character of the first item, so the type of the value can be checked without
+     * decoding it
+     *
+     * @return e.g. "\"" for a string, "[1" for an array of numbers or "[]" for an empty array, null when the key does not exist or holds a value that
+     * was not read from text
+     */
+    String peek(String key) {
+        var member = members.get(key);
+        return member == null || member.live ? null : peek(member);
+    }
+
+    private String peek(Member member) {
+        var first = text.charAt(member.start);
+        if (first != '[') {
+            return String.valueOf(first);
+        }
+        var position = member.start + 1;
+        while (position < member.end && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+        return position < member.end ? "[" + text.charAt(position) : "[";
+    }
+
+    /**
+     * @return The number of characters of the JSON text of the key's value or 0 when the key does not exist
+     */
+    int length(String key) {
+        var member = members.get(key);
+        return member == null ? 0 : member.end - member.start;
+    }
+
+    /**
+     * @return The decoded value of the key, one of String, Boolean, Integer, Long, Double, {@link org.json.JSONArray}, {@link org.json.JSONObject} or
+     * {@link org.json.JSONObject#NULL}. The value is decoded once and cached
+     * @throws JSONException When the value is not valid JSON
+     */
+    Object get(String key) throws JSONException {
+        var member = members.get(key);
+        if (member == null) {
+            return null;
+        }
+
+        var value = member.value;
+        if (value == null) {
+            value = new JSONTokener(text.subSequence(member.start, member.end).toString()).nextValue();
+            member.value = value;
+        }
+        return value;
+    }
+
+    String getString(String key) throws JSONException {
+        var value = require(key);
+        if (value instanceof String) {
+            return (String) value;
+        }
+        throw wrongType(key, "a string");
+    }
+
+    int getInt(String key) throws JSONException {
+        var value = require(key);
+        try {
+            return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt((String) value);
+        } catch (ClassCastException | NumberFormatException ex) {
+            throw wrongType(key, "an int");
+        }
+    }
+
+    double getDouble(String key) throws JSONException {
+        var value = require(key);
+        try {
+            return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble((String) value);
+        } catch (ClassCastException | NumberFormatException ex) {
+            throw wrongType(key, "a number");
+        }
+    }
+
+    boolean getBoolean(String key) throws JSONException {
+        var value = require(key);
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof String && ((String) value).equalsIgnoreCase("true")) {
+            return true;
+        }
+        if (value instanceof String && ((String) value).equalsIgnoreCase("false")) {
+            return false;
+        }
+        throw wrongType(key, "a Boolean");
+    }
+
+    JSONArray getJSONArray(String key) throws JSONException {
+        var value = require(key);
+        if (value instanceof JSONArray) {
+            return (JSONArray) value;
+        }
+        if (requireMember(key).live) {
+            return liveArray(key, value);
+        }
+        throw wrongType(key, "a JSONArray");
+    }
+
+    int[] getIntArray(String key) throws JSONException {
+        var member = requireMember(key);
+        if (!member.live) {
+            return PrimitiveArrayParser.parseIntArray(text, member.start, member.end);
+        }
+        if (member.value instanceof int[]) {
+            return ((int[]) member.value).clone();
+        }
+        var array = liveArray(key, member.value);
+        var values = new int[array.length()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = array.getInt(i);
+        }
+        return values;
+    }
+
+    long[] getLongArray(String key) throws JSONException {
+        var member = requireMember(key);
+        if (!member.live) {
+            return PrimitiveArrayParser.parseLongArray(text, member.start, member.end);
+        }
+        if (member.value instanceof long[]) {
+            return ((long[]) member.value).clone();
+        }
+        var array = liveArray(key, member.value);
+        var values = new long[array.length()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = array.getLong(i);
+        }
+        return values;
+    }
+
+    double[] getDoubleArray(String key) throws JSONException {
+        var member = requireMember(key);
+        if (!member.live) {
+            return PrimitiveArrayParser.parseDoubleArray(text, member.start, member.end);
+        }
+        if (member.value instanceof double[]) {
+            return ((double[]) member.value).clone();
+        }
+        var array = liveArray(key, member.value);
+        var values = new double[array.length()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = array.getDouble(i);
+        }
+        return values;
+    }
+
+    boolean[] getBooleanArray(String key) throws JSONException {
+        var member = requireMember(key);
+        if (!member.live) {
+            return PrimitiveArrayParser.parseBooleanArray(text, member.start, member.end);
+        }
+        if (member.value instanceof boolean[]) {
+            return ((boolean[]) member.value).clone();
+        }
+        var array = liveArray(key, member.value);
+        var values = new boolean[array.length()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = array.getBoolean(i);
+        }
+        return values;
+    }
+
+    private static JSONArray liveArray(String key, Object value) throws JSONException {
+        if (value instanceof JSONArray) {
+            return (JSONArray) value;
+        }
+        if (value instanceof Collection) {
+            return new JSONArray((Collection<?>) value);
+        }
+        if (value.getClass().isArray()) {
+            return new JSONArray(value);
+        }
+        throw wrongType(key, "a JSONArray");
+    }
+
+    private Member requireMember(String key) throws JSONException {
+        var member = members.get(key);
+        if (member == null) {
+            throw notFound(key);
+        }
+        return member;
+    }
+
+    private Object require(String key) throws JSONException {
+        var value = get(key);
+        if (value == null) {
+            throw notFound(key);
+        }
+        return value;
+    }
+
+    private static JSONException notFound(String key) {
+        return new JSONException("JSONObject[" + JSONObject.quote(key) + "] not found.");
+    }
+
+    private static JSONException wrongType(String key, String type) {
+        return new JSONException("JSONObject[" + JSONObject.quote(key) + "] is not " + type + ".");
+    }
+
+    private static final class Member {
+        private final int start;
+        private final int end;
+        private final boolean live;
+        private volatile Object value;
+
+        private Member(int start, int end) {
+            this.start = start;
+            this.end = end;
+            this.live = false;
+        }
+
+        private Member(Object value) {
+            this.start = 0;
+            this.end = 0;
+            this.live = true;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Finds the boundaries of values. Only structural characters are checked here, the values themselves are validated when they are decoded. Accepts
+     * the same relaxed syntax as {@link JSONObject}: keys and values without quotes or in single quotes, ';' between members and a trailing ','
+     */
+    private static final class Scanner {
+        /**
+         * The characters that end text without quotes, as in {@link JSONTokener#nextValue()}
+         */
+        private static final String UNQUOTED_DELIMITERS = ",:]}/\\\"[{;=#";
+
+        private final CharSequence text;
+        private int position;
+
+        private Scanner(CharSequence text) {
+            this.text = text;
+        }
+
+        private Map<String, Member> scanObject() {
+            var members = new LinkedHashMap<String, Member>();
+
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+                return members;
+            }
+
+            while (true) {
+                skipWhitespace();
+                var key = scanKey();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                var start = position;
+                var end = skipValue();
+                if (members.put(key, new Member(start, end)) != null) {
+                    throw error("Duplicate key \"" + key + "\"");
+                }
+
+                skipWhitespace();
+                var next = next();
+                if (next == '}') {
+                    return members;
+                }
+                if (next != ',' && next != ';') {
+                    throw error("Expected ',' or '}'");
+                }
+                skipWhitespace();
+                if (peek() == '}') {
+                    position++;
+                    return members;
+                }
+            }
+        }
+
+        /**
+         * @throws JSONException When there is more than whitespace after the object
+         */
+        private void expectEnd() {
+            skipWhitespace();
+            if (position < text.length()) {
+                throw error("Unexpected text after the object");
+            }
+        }
+
+        private String scanKey() {
+            var start = position;
+            var c = peek();
+            if (c != '"' && c != '\'') {
+                var end = skipUnquoted();
+                if (end == start) {
+                    throw error("Expected a key");
+                }
+                return JSONObject.stringToValue(text.subSequence(start, end).toString()).toString();
+            }
+            var escaped = skipString();
+            if (!escaped) {
+                return text.subSequence(start + 1, position - 1).toString();
+            }
+            return (String) new JSONTokener(text.subSequence(start, position).toString()).nextValue();
+        }
+
+        /**
+         * @return The end of the value without trailing whitespace, where the member ends
+         */
+        private int skipValue() {
+            var c = peek();
+            if (c == '"' || c == '\'') {
+                skipString();
+            } else if (c == '{' || c == '[') {
+                skipContainer();
+            } else {
+                var start = position;
+                var end = skipUnquoted();
+                if (end == start) {
+                    throw error("Expected a value");
+                }
+                return end;
+            }
+            return position;
+        }
+
+        /**
+         * Skips text without quotes, which may contain spaces like in {@link JSONTokener#nextValue()}
+         *
+         * @return The end of the text without trailing whitespace
+         */
+        private int skipUnquoted() {
+            var end = position;
+            while (position < text.length() && text.charAt(position) >= ' ' && UNQUOTED_DELIMITERS.indexOf(text.charAt(position)) < 0) {
+                position++;
+                if (!Character.isWhitespace(text.charAt(position - 1))) {
+                    end = position;
+                }
+            }
+            return end;
+        }
+
+        private void skipContainer() {
+            var depth = 0;
+            do {
+                var c = peek();
+                if (c == '"' || c == '\'') {
+                    skipString();
+                    continue;
+                }
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+                position++;
+            } while (depth > 0);
+        }
+
+        /**
+         * @return true when the string contains escape sequences
+         */
+        private boolean skipString() {
+            var escaped = false;
+            var quote = next();
+            while (true) {
+                var c = next();
+                if (c == quote) {
+                    return escaped;
+                }
+                if (c == '\\') {
+                    escaped = true;
+                    next();
+                }
+            }
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private void expect(char expected) {
+            skipWhitespace();
+            if (next() != expected) {
+                throw error("Expected '" + expected + "'");
+            }
+        }
+
+        private char peek() {
+            if (position >= text.length()) {
+                throw error("Unexpected end of input");
+            }
+            return text.charAt(position);
+        }
+
+        private char next() {
+            var c = peek();
+            position++;
+            return c;
+        }
+
+        private JSONException error(String message) {
+            return new JSONException(message + " at character " + position);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.apeer.sdk;
+
+/**
+ * Severity of a log message. A logger writes all messages of its level and above
+ */
+public enum LogLevel {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+
+    /**
+     * Only used as threshold to disable logging
+     */
+    OFF
+}
@@ -0,0 +1,201 @@
+package com.apeer.sdk;
+
+import org.apache.commons.lang3.Validate;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The thread pools the ADKs of a process share between the modules and their own work: a {@link ForkJoinPool} for computations with one thread per
+ * CPU of the container and an executor for blocking I/O such as staging files. The I/O executor runs every task on its own virtual thread when the
+ * JVM supports them and on a bounded pool of platform threads otherwise. Both are created on first use and run as daemon threads until the process
+ * ends, so the jobs of a worker and the stages of a pipeline do not start a pool each and compete for the same CPUs
+ */
+final class ManagedExecutors {
+    static final String PROCESS_CPU_PHASE = "process.cpu";
+    static final String IO_PHASE = "executor.io";
+
+    private static ManagedExecutors shared;
+
+    private final int computeParallelism;
+    private final int ioParallelism;
+    private final boolean virtualThreads;
+    private ForkJoinPool computePool;
+    private MonitoredExecutor ioExecutor;
+
+    /**
+     * @param virtualThreads true to use virtual threads for I/O when the JVM supports them
+     */
+    ManagedExecutors(int computeParallelism, int ioParallelism, boolean virtualThreads) {
+        Validate.isTrue(computeParallelism > 0, "computeParallelism must be positive");
+        Validate.isTrue(ioParallelism > 0, "ioParallelism must be positive");
+
+        this.computeParallelism = computeParallelism;
+        this.ioParallelism = ioParallelism;
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Returns the executors of the process. They are created with the settings of the first ADK, later settings are ignored
+     */
+    static synchronized ManagedExecutors shared(ApeerSettings settings) {
+        if (shared == null) {
+            shared = new ManagedExecutors(settings.getComputeParallelism(), settings.getIoParallelism(), settings.isVirtualThreads());
+        }
+        return shared;
+    }
+
+    synchronized ForkJoinPool getComputePool() {
+        if (computePool == null) {
+            computePool = new ForkJoinPool(computeParallelism, pool -> {
+                var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("adk-compute-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+        }
+        return computePool;
+    }
+
+    synchronized ExecutorService getIoExecutor() {
+        if (ioExecutor == null) {
+            var virtualThreadFactory = virtualThreads ? virtualThreadFactory() : null;
+            ioExecutor = virtualThreadFactory != null
+                    ? new MonitoredExecutor(0, Integer.MAX_VALUE, new SynchronousQueue<>(), virtualThreadFactory, true)
+                    : new MonitoredExecutor(ioParallelism, ioParallelism, new LinkedBlockingQueue<>(), new PlatformThreadFactory(), false);
+        }
+        return ioExecutor;
+    }
+
+    /**
+     * @return The counters to report the usage since now with {@link #report(Usage, IMetricsSink, ILogger)}
+     */
+    synchronized Usage getUsage() {
+        return new Usage(System.nanoTime(), processCpuNanos(), ioExecutor != null ? ioExecutor.busyNanos.get() : 0,
+                ioExecutor != null ? ioExecutor.getCompletedTaskCount() : 0);
+    }
+
+    /**
+     * Reports how busy the process and the I/O executor were since the usage was taken: the CPU time of the whole process, which includes the
+     * compute pool but also every other thread, against the CPUs of the compute pool, and the time I/O tasks ran. The executors are shared, so the
+     * times include the work of other ADKs in the same process. Executors that were never used are not reported
+     */
+    synchronized void report(Usage since, IMetricsSink metrics, ILogger logger) {
+        var elapsed = Math.max(1, System.nanoTime() - since.nanos);
+        if (computePool != null) {
+            var cpuNanos = Math.max(0, processCpuNanos() - since.cpuNanos);
+            metrics.record(PROCESS_CPU_PHASE, null, cpuNanos, 0);
+            logger.log(LogLevel.INFO, () -> "Compute pool: " + computeParallelism + " threads, " + computePool.getStealCount() + " steals, "
+                    + computePool.getQueuedSubmissionCount() + " queued, process CPU time " + percent(cpuNanos, elapsed * computeParallelism)
+                    + " of the pool's CPUs");
+        }
+        if (ioExecutor != null) {
+            var busyNanos = ioExecutor.busyNanos.get() - since.ioBusyNanos;
+            var tasks = ioExecutor.getCompletedTaskCount() - since.ioTasks;
+            metrics.record(IO_PHASE, null, busyNanos, 0);
+            logger.log(LogLevel.INFO, () -> "I/O executor: " + (ioExecutor.virtual ? "virtual threads, average " + String.format("%.1f", (double) busyNanos
+                    / elapsed) + " busy" : ioParallelism + " threads, " + percent(busyNanos, elapsed * ioParallelism) + " busy") + ", "
+                    + tasks + " tasks, longest queue " + ioExecutor.peakQueue.get());
+        }
+    }
+
+    private static String percent(long part, long total) {
+        return Math.round(100.0 * part / total) + "%";
+    }
+
+    private static long processCpuNanos() {
+        var bean = ManagementFactory.getOperatingSystemMXBean();
+        if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) bean).getProcessCpuTime();
+        }
+        return 0;
+    }
+
+    /**
+     * The ADK targets Java 11, so virtual threads are created through {@code Thread.ofVirtual()} when the JVM has it
+     *
+     * @return A factory for virtual threads or null when the JVM has no virtual threads
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            var builderType = Class.forName("java.lang.Thread$Builder");
+            var builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "adk-io-", 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * The counters of the executors at one point in time
+     */
+    static final class Usage {
+        private final long nanos;
+        private final long cpuNanos;
+        private final long ioBusyNanos;
+        private final long ioTasks;
+
+        private Usage(long nanos, long cpuNanos, long ioBusyNanos, long ioTasks) {
+            this.nanos = nanos;
+            this.cpuNanos = cpuNanos;
+            this.ioBusyNanos = ioBusyNanos;
+            this.ioTasks = ioTasks;
+        }
+    }
+
+    /**
+     * Measures the time tasks run and the longest queue of waiting tasks
+     */
+    private static final class MonitoredExecutor extends ThreadPoolExecutor {
+        private final boolean virtual;
+        private final AtomicLong busyNanos = new AtomicLong();
+        private final AtomicInteger peakQueue = new AtomicInteger();
+        private final ThreadLocal<Long> startNanos = new ThreadLocal<>();
+
+        private MonitoredExecutor(int coreThreads, int maxThreads, BlockingQueue<Runnable> queue, ThreadFactory threadFactory,
+                                  boolean virtual) {
+            super(coreThreads, maxThreads, virtual ? 0 : 30, TimeUnit.SECONDS, queue, threadFactory);
+            this.virtual = virtual;
+            if (!virtual) {
+                allowCoreThreadTimeOut(true);
+            }
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            super.execute(command);
+            var queued = getQueue().size();
+            peakQueue.accumulateAndGet(queued, Math::max);
+        }
+
+        @Override
+        protected void beforeExecute(Thread thread, Runnable task) {
+            startNanos.set(System.nanoTime());
+        }
+
+        @Override
+        protected void afterExecute(Runnable task, Throwable failure) {
+            busyNanos.addAndGet(System.nanoTime() - startNanos.get());
+        }
+    }
+
+    private static final class PlatformThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            var thread = new Thread(runnable, "adk-io-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
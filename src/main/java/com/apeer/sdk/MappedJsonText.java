@@ -0,0 +1,39 @@
+package com.apeer.sdk;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Exposes UTF-8 encoded JSON in a byte buffer as characters without decoding it up front. {@link #charAt(int)} returns single bytes, which is exact for
+ * all structural JSON characters because UTF-8 never uses bytes below 0x80 inside multi-byte characters. {@link #toString()} decodes the bytes properly,
+ * so strings and keys taken from a {@link #subSequence(int, int)} are correct
+ */
+final class MappedJsonText implements CharSequence {
+    private final ByteBuffer buffer;
+
+    MappedJsonText(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int length() {
+        return buffer.limit();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (buffer.get(index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new MappedJsonText(buffer.duplicate().position(start).limit(end).slice());
+    }
+
+    @Override
+    public String toString() {
+        var bytes = new byte[buffer.limit()];
+        buffer.duplicate().position(0).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,117 @@
+package com.apeer.sdk;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The view of one ADK on the shared I/O executor that the module submits its tasks to. It counts the tasks that did not finish yet, so
+ * {@code finalizeModule()} can wait for them before it publishes the outputs. The tasks are queued here and every task submitted to the shared executor
+ * runs the next of them, so a waiting caller can run the queued ones itself instead of waiting for a free thread
+ */
+final class ModuleExecutor extends AbstractExecutorService {
+    private final ExecutorService executor;
+    private final Queue<Runnable> queuedTasks = new ConcurrentLinkedQueue<>();
+    /**
+     * The tasks the current thread is running, which {@link #awaitTasks()} must not wait for when a task finalizes the module
+     */
+    private final ThreadLocal<int[]> runningOnThread = ThreadLocal.withInitial(() -> new int[1]);
+    private int unfinishedTasks;
+
+    ModuleExecutor(ExecutorService executor) {
+        Validate.notNull(executor);
+
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        Validate.notNull(command);
+
+        synchronized (this) {
+            unfinishedTasks++;
+        }
+        queuedTasks.add(command);
+        try {
+            executor.execute(this::runQueuedTask);
+        } catch (RejectedExecutionException ex) {
+            if (queuedTasks.remove(command)) {
+                finishTask();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Runs the tasks that are still queued on the calling thread and waits until the others finished, including tasks they submitted meanwhile.
+     * Tasks submitted afterwards are not waited for
+     */
+    void awaitTasks() throws InterruptedException {
+        while (!queuedTasks.isEmpty()) {
+            try {
+                runQueuedTask();
+            } catch (RuntimeException ex) {
+                // a task given to execute() fails on the thread that runs it, the module does not expect it to fail finalizing
+            }
+        }
+
+        var ownTasks = runningOnThread.get()[0];
+        synchronized (this) {
+            while (unfinishedTasks > ownTasks) {
+                wait();
+            }
+        }
+    }
+
+    private void runQueuedTask() {
+        var task = queuedTasks.poll();
+        if (task == null) {
+            // already run by a caller of awaitTasks()
+            return;
+        }
+        var running = runningOnThread.get();
+        running[0]++;
+        try {
+            task.run();
+        } finally {
+            running[0]--;
+            finishTask();
+        }
+    }
+
+    private synchronized void finishTask() {
+        unfinishedTasks--;
+        notifyAll();
+    }
+
+    @Override
+    public void shutdown() {
+        throw new UnsupportedOperationException("The I/O executor is shared by all ADKs of the process and must not be shut down");
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        throw new UnsupportedOperationException("The I/O executor is shared by all ADKs of the process and must not be shut down");
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return executor.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+}
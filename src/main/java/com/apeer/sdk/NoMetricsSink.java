@@ -0,0 +1,24 @@
+package com.apeer.sdk;
+
+/**
+ * Discards all metrics, used unless ADK_METRICS is enabled
+ */
+final class NoMetricsSink implements IMetricsSink {
+    static final NoMetricsSink INSTANCE = new NoMetricsSink();
+
+    private NoMetricsSink() {
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public void record(String phase, String key, long nanos, long bytes) {
+    }
+
+    @Override
+    public void flush() {
+    }
+}
@@ -0,0 +1,176 @@
+package com.apeer.sdk;
+
+/**
+ * Formats numbers as JSON into a caller supplied buffer without allocating. Doubles and floats get the shortest decimal that parses back to the exact
+ * same value, in the same layout as {@link Double#toString(double)} with a trailing ".0" dropped, like org.json does
+ */
+final class NumberFormatter {
+    /**
+     * Large enough for every long and every result of {@link Double#toString(double)}
+     */
+    static final int BUFFER_SIZE = 32;
+
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final float[] FLOAT_POWERS_OF_TEN = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+    private static final double MAX_EXACT_DOUBLE_MANTISSA = 1L << 53;
+    private static final float MAX_EXACT_FLOAT_MANTISSA = 1 << 24;
+
+    private NumberFormatter() {
+    }
+
+    /**
+     * @return The number of characters written to the buffer
+     */
+    static int formatLong(long value, char[] buffer) {
+        return formatLong(value, buffer, 0);
+    }
+
+    /**
+     * @return The number of characters written to the buffer
+     * @throws IllegalArgumentException When the value is NaN or infinite, which JSON does not allow
+     */
+    static int formatDouble(double value, char[] buffer) {
+        if (!Double.isFinite(value)) {
+            throw new IllegalArgumentException("JSON does not allow non-finite numbers");
+        }
+
+        var magnitude = Math.abs(value);
+        if (magnitude == 0) {
+            return formatDecimal(value < 0 || 1 / value < 0, 0, 0, buffer);
+        }
+
+        // find the fewest decimal places k so that mantissa / 10^k rounds to the value. Both operands are exact and IEEE 754 division is correctly
+        // rounded, so a parser reading the resulting digits gets back the same double
+        for (int k = 0; k < DOUBLE_POWERS_OF_TEN.length; k++) {
+            var scaled = magnitude * DOUBLE_POWERS_OF_TEN[k];
+            if (scaled >= MAX_EXACT_DOUBLE_MANTISSA) {
+                break;
+            }
+            var mantissa = Math.round(scaled);
+            if (mantissa / DOUBLE_POWERS_OF_TEN[k] == magnitude) {
+                return formatDecimal(value < 0, mantissa, k, buffer);
+            }
+        }
+        return copyJdkFormat(Double.toString(value), buffer);
+    }
+
+    /**
+     * @return The number of characters written to the buffer
+     * @throws IllegalArgumentException When the value is NaN or infinite, which JSON does not allow
+     */
+    static int formatFloat(float value, char[] buffer) {
+        if (!Float.isFinite(value)) {
+            throw new IllegalArgumentException("JSON does not allow non-finite numbers");
+        }
+
+        var magnitude = Math.abs(value);
+        if (magnitude == 0) {
+            return formatDecimal(1 / value < 0, 0, 0, buffer);
+        }
+
+        for (int k = 0; k < FLOAT_POWERS_OF_TEN.length; k++) {
+            var scaled = magnitude * FLOAT_POWERS_OF_TEN[k];
+            if (scaled >= MAX_EXACT_FLOAT_MANTISSA) {
+                break;
+            }
+            var mantissa = Math.round(scaled);
+            if (mantissa / FLOAT_POWERS_OF_TEN[k] == magnitude) {
+                return formatDecimal(value < 0, mantissa, k, buffer);
+            }
+        }
+        return copyJdkFormat(Float.toString(value), buffer);
+    }
+
+    /**
+     * Writes {@code mantissa * 10^-decimals} using plain notation between 10^-3 and 10^7 and scientific notation otherwise, like the JDK does
+     */
+    private static int formatDecimal(boolean negative, long mantissa, int decimals, char[] buffer) {
+        while (decimals > 0 && mantissa % 10 == 0) {
+            mantissa /= 10;
+            decimals--;
+        }
+
+        var length = 0;
+        if (negative) {
+            buffer[length++] = '-';
+        }
+        var digitsStart = length;
+        var digitCount = formatLong(mantissa, buffer, digitsStart);
+        var exponent = digitCount - 1 - decimals;
+
+        if (mantissa == 0 || (exponent >= -3 && exponent < 7)) {
+            if (decimals == 0) {
+                return digitsStart + digitCount;
+            }
+            if (digitCount > decimals) {
+                // 123.45: insert the point into the digits
+                var pointIndex = digitsStart + digitCount - decimals;
+                System.arraycopy(buffer, pointIndex, buffer, pointIndex + 1, decimals);
+                buffer[pointIndex] = '.';
+                return digitsStart + digitCount + 1;
+            }
+            // 0.00123: shift the digits behind the leading zeros
+            var zeros = decimals - digitCount;
+            System.arraycopy(buffer, digitsStart, buffer, digitsStart + 2 + zeros, digitCount);
+            buffer[digitsStart] = '0';
+            buffer[digitsStart + 1] = '.';
+            for (int i = 0; i < zeros; i++) {
+                buffer[digitsStart + 2 + i] = '0';
+            }
+            return digitsStart + 2 + zeros + digitCount;
+        }
+
+        // 1.2345E-7: the point follows the first digit
+        while (digitCount > 1 && buffer[digitsStart + digitCount - 1] == '0') {
+            digitCount--;
+        }
+        System.arraycopy(buffer, digitsStart + 1, buffer, digitsStart + 2, digitCount - 1);
+        buffer[digitsStart + 1] = '.';
+        length = digitsStart + digitCount + 1;
+        if (digitCount == 1) {
+            buffer[length++] = '0';
+        }
+        buffer[length++] = 'E';
+        return length + formatLong(exponent, buffer, length);
+    }
+
+    private static int formatLong(long value, char[] buffer, int offset) {
+        var length = offset;
+        if (value < 0) {
+            buffer[length++] = '-';
+        } else {
+            // accumulate negatively so that Long.MIN_VALUE can be formatted
+            value = -value;
+        }
+
+        var digitsStart = length;
+        do {
+            buffer[length++] = (char) ('0' - (value % 10));
+            value /= 10;
+        } while (value != 0);
+        reverse(buffer, digitsStart, length);
+        return length - offset;
+    }
+
+    private static int copyJdkFormat(String formatted, char[] buffer) {
+        var length = formatted.length();
+        if (formatted.endsWith(".0")) {
+            length -= 2;
+        }
+        formatted.getChars(0, length, buffer, 0);
+        return length;
+    }
+
+    private static void reverse(char[] buffer, int start, int end) {
+        for (int i = start, j = end - 1; i < j; i++, j--) {
+            var c = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = c;
+        }
+    }
+}
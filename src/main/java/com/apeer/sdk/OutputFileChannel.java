@@ -0,0 +1,76 @@
+package com.apeer.sdk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+
+/**
+ * A channel to a file in the output folder that registers the file as output once it is closed successfully. Counts and optionally hashes the written
+ * bytes on the way. A file that could not be written completely is closed without registering it, so the partial file is never published
+ */
+class OutputFileChannel implements WritableByteChannel {
+    interface Registration {
+        /**
+         * @param digest The checksum of the written bytes as hex string or null when no digest was given
+         */
+        void register(long size, String digest) throws ApeerOutputException;
+    }
+
+    private final WritableByteChannel channel;
+    private final MessageDigest digest;
+    private final Registration registration;
+    private long size;
+    private volatile boolean failed;
+    private boolean closed;
+
+    /**
+     * @param digest Receives all written bytes or null when no checksum is needed
+     */
+    OutputFileChannel(WritableByteChannel channel, MessageDigest digest, Registration registration) {
+        this.channel = channel;
+        this.digest = digest;
+        this.registration = registration;
+    }
+
+    @Override
+    public int write(ByteBuffer source) throws IOException {
+        var written = source.duplicate();
+        int count;
+        try {
+            count = channel.write(source);
+        } catch (IOException | RuntimeException ex) {
+            failed = true;
+            throw ex;
+        }
+        size += count;
+        if (digest != null) {
+            written.limit(written.position() + count);
+            digest.update(written);
+        }
+        return count;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        channel.close();
+        if (failed) {
+            return;
+        }
+        try {
+            registration.register(size, digest == null ? null : Digests.toHex(digest.digest()));
+        } catch (ApeerOutputException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+    }
+}
@@ -2,37 +2,175 @@ package com.apeer.sdk;
 
 import org.apache.commons.lang3.Validate;
 
-import java.io.FileWriter;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class OutputJsonFileWriter implements IFileOutput {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int TEMP_FILE_ATTEMPTS = 100;
+
+    private final FsyncPolicy fsyncPolicy;
+    private final List<StagingStrategy> stagingStrategies;
+    private final String digestAlgorithm;
+
+    /**
+     * Creates a writer that copies files. Source files are left untouched
+     */
+    public OutputJsonFileWriter() {
+        this(StagingStrategy.TRANSFER);
+    }
+
+    /**
+     * @param stagingStrategies The strategies used to stage files in the order they are tried
+     */
+    public OutputJsonFileWriter(StagingStrategy... stagingStrategies) {
+        this(FsyncPolicy.NONE, stagingStrategies);
+    }
+
+    /**
+     * @param fsyncPolicy       How written files are forced to disk
+     * @param stagingStrategies The strategies used to stage files in the order they are tried
+     */
+    public OutputJsonFileWriter(FsyncPolicy fsyncPolicy, StagingStrategy... stagingStrategies) {
+        this(fsyncPolicy, null, stagingStrategies);
+    }
+
+    /**
+     * @param fsyncPolicy       How written files are forced to disk
+     * @param digestAlgorithm   The {@link java.security.MessageDigest} algorithm, e.g. "SHA-256", used to compute a checksum of every staged file while it
+     *                          is staged, or null for no checksums
+     * @param stagingStrategies The strategies used to stage files in the order they are tried
+     */
+    public OutputJsonFileWriter(FsyncPolicy fsyncPolicy, String digestAlgorithm, StagingStrategy... stagingStrategies) {
+        Validate.notNull(fsyncPolicy);
+        Validate.notEmpty(stagingStrategies);
+        Validate.noNullElements(stagingStrategies);
+        Digests.create(digestAlgorithm);
+
+        this.fsyncPolicy = fsyncPolicy;
+        this.digestAlgorithm = digestAlgorithm;
+        this.stagingStrategies = List.of(stagingStrategies);
+    }
+
     @Override
-    public void writeTextToFile(String filePath, String text)  throws ApeerOutputException {
-        Validate.notNull(filePath);
+    public void writeTextToFile(String filePath, String text) throws ApeerOutputException {
         Validate.notNull(text);
 
-        FileWriter writer;
+        writeJsonToFile(filePath, writer -> writer.write(text));
+    }
+
+    /**
+     * Streams the content as UTF-8 into a temporary file next to the target and renames it to the target afterwards. Readers of the target never see a
+     * partly written file
+     */
+    @Override
+    public void writeJsonToFile(String filePath, IJsonContent content) throws ApeerOutputException {
+        Validate.notNull(filePath);
+        Validate.notNull(content);
+
+        var targetPath = Path.of(filePath).toAbsolutePath();
+        var targetFolder = targetPath.getParent();
+        Path tempPath = null;
         try {
-            writer = new FileWriter(filePath);
-            writer.append(text);
-            writer.flush();
-            writer.close();
+            Files.createDirectories(targetFolder);
+            FileChannel tempChannel = null;
+            for (int attempt = 0; tempChannel == null; attempt++) {
+                // Files.createTempFile would create the file with 0600, which the renamed target would keep
+                var candidate = targetFolder.resolve("." + targetPath.getFileName() + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+                try {
+                    tempChannel = FileChannel.open(candidate, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                    tempPath = candidate;
+                } catch (FileAlreadyExistsException ex) {
+                    if (attempt == TEMP_FILE_ATTEMPTS) {
+                        throw ex;
+                    }
+                }
+            }
+
+            try (var channel = tempChannel;
+                 var writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE)) {
+                content.writeTo(writer);
+                writer.flush();
+                if (fsyncPolicy != FsyncPolicy.NONE) {
+                    channel.force(true);
+                }
+            }
+
+            try {
+                Files.move(tempPath, targetPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tempPath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            tempPath = null;
+
+            if (fsyncPolicy == FsyncPolicy.FILE_AND_FOLDER) {
+                forceFolder(targetFolder);
+            }
+        } catch (IOException | RuntimeException ex) {
+            throw new ApeerOutputException("Could not write \"" + filePath + "\"", ex);
+        } finally {
+            deleteQuietly(tempPath);
+        }
+    }
+
+    private static void forceFolder(Path folder) {
+        try (var channel = FileChannel.open(folder, StandardOpenOption.READ)) {
+            channel.force(true);
         } catch (IOException ex) {
-            throw new ApeerOutputException("Could not write \"" + text + "\" to \"" + filePath + "\"", ex);
+            // not every platform can open folders, the rename is still atomic
         }
     }
 
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            // nothing left to do, the target file is untouched
+        }
+    }
+
+    @Override
+    public void moveFile(Path sourcePath, Path targetPath) throws ApeerOutputException {
+        stageFile(sourcePath, targetPath);
+    }
+
     @Override
-    public void moveFile(Path sourcePath, Path targetPath)  throws ApeerOutputException {
+    public StagedFile stageFile(Path sourcePath, Path targetPath) throws ApeerOutputException {
         Validate.notNull(sourcePath);
         Validate.notNull(targetPath);
 
         try {
-            Files.copy(sourcePath, targetPath);
+            var size = Files.size(sourcePath);
+            var targetFolder = targetPath.toAbsolutePath().getParent();
+            if (targetFolder != null) {
+                Files.createDirectories(targetFolder);
+            }
+
+            // strategies that are not applicable return before reading any bytes, so all of them can share the digest
+            var digest = Digests.create(digestAlgorithm);
+            for (var strategy : stagingStrategies) {
+                if (strategy.tryStage(sourcePath, targetPath, digest)) {
+                    return new StagedFile(sourcePath, targetPath, strategy, size, digest == null ? null : Digests.toHex(digest.digest()));
+                }
+            }
         } catch (IOException ex) {
             throw new ApeerOutputException("Could not copy \"" + sourcePath + "\" to \"" + targetPath + "\"", ex);
         }
+
+        throw new ApeerOutputException("Could not stage \"" + sourcePath + "\" to \"" + targetPath + "\" with any of " + stagingStrategies);
     }
 }
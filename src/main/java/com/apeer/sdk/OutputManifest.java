@@ -0,0 +1,106 @@
+package com.apeer.sdk;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sizes and checksums of all files that reached the output folder through the ADK, written as JSON like
+ * {@code {"algorithm":"SHA-256","files":[{"path":"/output/image.png","size":4096,"digest":"9f86d0..."}]}}
+ */
+final class OutputManifest {
+    private final String algorithm;
+    private final Map<Path, StagedFile> files = new ConcurrentHashMap<>();
+    private final Set<String> fileOutputKeys = ConcurrentHashMap.newKeySet();
+
+    OutputManifest(String algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    void add(StagedFile file) {
+        files.put(file.getTargetPath(), file);
+    }
+
+    /**
+     * Marks the output as file output, only these get a digest in {@link #addDigestsTo(Map)}
+     *
+     * @param fileOutput false when the key was set again with a value that is no file output
+     */
+    void setFileOutput(String key, boolean fileOutput) {
+        if (fileOutput) {
+            fileOutputKeys.add(key);
+        } else {
+            fileOutputKeys.remove(key);
+        }
+    }
+
+    /**
+     * @param outputPath The path exactly as it was set as output value, e.g. "/output//data/image.png"
+     * @return The checksum of the file or null when the file was not staged by the ADK
+     */
+    String getDigest(String outputPath) {
+        try {
+            // compared as paths, which refer to the same file however the value separates its names
+            var file = files.get(Path.of(outputPath));
+            return file == null ? null : file.getDigest();
+        } catch (InvalidPathException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Adds a "key_digest" value next to every file output, a string for a single file and an array for multiple files. Values the module set itself
+     * are kept
+     */
+    void addDigestsTo(Map<String, Object> values) {
+        for (var entry : new TreeMap<>(values).entrySet()) {
+            if (!fileOutputKeys.contains(entry.getKey())) {
+                continue;
+            }
+            Object digests = null;
+            if (entry.getValue() instanceof String) {
+                digests = getDigest((String) entry.getValue());
+            } else if (entry.getValue() instanceof String[]) {
+                var paths = (String[]) entry.getValue();
+                var pathDigests = new String[paths.length];
+                for (int i = 0; i < paths.length; i++) {
+                    pathDigests[i] = getDigest(paths[i]);
+                }
+                digests = pathDigests;
+            }
+            if (digests != null) {
+                values.putIfAbsent(entry.getKey() + "_digest", digests);
+            }
+        }
+    }
+
+    void writeTo(Writer writer) throws IOException {
+        writer.write("{\"algorithm\":");
+        writer.write(JSONObject.quote(algorithm));
+        writer.write(",\"files\":[");
+        var first = true;
+        var sortedFiles = files.values().stream().sorted(Comparator.comparing(file -> file.getTargetPath().toString())).toArray(StagedFile[]::new);
+        for (var file : sortedFiles) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+
+            writer.write("{\"path\":");
+            writer.write(JSONObject.quote(file.getTargetPath().toString()));
+            writer.write(",\"size\":" + file.getSize());
+            writer.write(",\"digest\":");
+            writer.write(file.getDigest() == null ? "null" : JSONObject.quote(file.getDigest()));
+            writer.write('}');
+        }
+        writer.write("]}");
+    }
+}
@@ -0,0 +1,109 @@
+package com.apeer.sdk;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Streams output values as a JSON object. Primitive arrays are written element by element through {@link NumberFormatter}, all other values are
+ * encoded by org.json
+ */
+final class OutputParamsWriter {
+    private final Writer writer;
+    private final char[] buffer = new char[NumberFormatter.BUFFER_SIZE];
+
+    OutputParamsWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    void writeObject(Map<String, Object> values) throws IOException {
+        writer.write('{');
+        var first = true;
+        for (var entry : values.entrySet()) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+
+            writer.write(JSONObject.quote(entry.getKey()));
+            writer.write(':');
+            writeValue(entry.getKey(), entry.getValue());
+        }
+        writer.write('}');
+    }
+
+    private void writeValue(String key, Object value) throws IOException {
+        try {
+            if (value instanceof double[]) {
+                writeDoubles((double[]) value);
+            } else if (value instanceof float[]) {
+                writeFloats((float[]) value);
+            } else if (value instanceof int[]) {
+                writeInts((int[]) value);
+            } else if (value instanceof long[]) {
+                writeLongs((long[]) value);
+            } else if (value instanceof JSONObject) {
+                ((JSONObject) value).write(writer);
+            } else if (value instanceof JSONArray) {
+                ((JSONArray) value).write(writer);
+            } else if (value instanceof Collection || value.getClass().isArray()) {
+                new JSONArray(value).write(writer);
+            } else if (value instanceof Map) {
+                new JSONObject((Map<?, ?>) value).write(writer);
+            } else {
+                writer.write(JSONObject.valueToString(value));
+            }
+        } catch (JSONException | IllegalArgumentException ex) {
+            throw new IOException("Could not encode output \"" + key + "\"", ex);
+        }
+    }
+
+    private void writeDoubles(double[] values) throws IOException {
+        writer.write('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(buffer, 0, NumberFormatter.formatDouble(values[i], buffer));
+        }
+        writer.write(']');
+    }
+
+    private void writeFloats(float[] values) throws IOException {
+        writer.write('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(buffer, 0, NumberFormatter.formatFloat(values[i], buffer));
+        }
+        writer.write(']');
+    }
+
+    private void writeInts(int[] values) throws IOException {
+        writer.write('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(buffer, 0, NumberFormatter.formatLong(values[i], buffer));
+        }
+        writer.write(']');
+    }
+
+    private void writeLongs(long[] values) throws IOException {
+        writer.write('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(buffer, 0, NumberFormatter.formatLong(values[i], buffer));
+        }
+        writer.write(']');
+    }
+}
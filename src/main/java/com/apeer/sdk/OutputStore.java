@@ -0,0 +1,86 @@
+package com.apeer.sdk;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects output values from any number of threads without locking. Once closed, no more values are accepted and all values that were accepted are
+ * part of the snapshot
+ */
+final class OutputStore {
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+
+    /**
+     * The sign bit marks the store as closed, the remaining bits count the writers that are currently adding a value
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * @param value The value to set, null removes the key
+     * @throws ApeerOutputException When the store is already closed
+     */
+    void put(String key, Object value) throws ApeerOutputException {
+        enter(key);
+        try {
+            if (value == null) {
+                values.remove(key);
+            } else {
+                values.put(key, value);
+            }
+        } finally {
+            state.decrementAndGet();
+        }
+    }
+
+    /**
+     * @throws ApeerOutputException When the store is already closed
+     */
+    void checkOpen(String key) throws ApeerOutputException {
+        if (isClosed()) {
+            throw closedException(key);
+        }
+    }
+
+    boolean isClosed() {
+        return (state.get() & CLOSED) != 0;
+    }
+
+    /**
+     * Stops accepting values and waits for writers that are still adding one
+     *
+     * @return All values sorted by key, so the result does not depend on the order in which threads added them
+     * @throws ApeerOutputException When the store is already closed
+     */
+    Map<String, Object> close() throws ApeerOutputException {
+        long current;
+        do {
+            current = state.get();
+            if ((current & CLOSED) != 0) {
+                throw new ApeerOutputException("Module was already finalized");
+            }
+        } while (!state.compareAndSet(current, current | CLOSED));
+
+        while (state.get() != CLOSED) {
+            Thread.onSpinWait();
+        }
+        return new TreeMap<>(values);
+    }
+
+    private void enter(String key) throws ApeerOutputException {
+        long current;
+        do {
+            current = state.get();
+            if ((current & CLOSED) != 0) {
+                throw closedException(key);
+            }
+        } while (!state.compareAndSet(current, current + 1));
+    }
+
+    private static ApeerOutputException closedException(String key) {
+        return new ApeerOutputException("Could not set output \"" + key + "\" because the module was already finalized");
+    }
+}
@@ -0,0 +1,36 @@
+package com.apeer.sdk;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.function.Supplier;
+
+/**
+ * Prefixes the messages of an ADK, e.g. with the id of a job or the name of a pipeline stage, so the logs of concurrent modules can be told apart
+ */
+final class PrefixedLogger implements ILogger {
+    private final String prefix;
+    private final ILogger logger;
+
+    PrefixedLogger(String prefix, ILogger logger) {
+        Validate.notNull(prefix);
+        Validate.notNull(logger);
+
+        this.prefix = prefix;
+        this.logger = logger;
+    }
+
+    @Override
+    public boolean isEnabled(LogLevel level) {
+        return logger.isEnabled(level);
+    }
+
+    @Override
+    public void log(LogLevel level, Supplier<String> message) {
+        logger.log(level, () -> prefix + message.get());
+    }
+
+    @Override
+    public void flush() {
+        logger.flush();
+    }
+}
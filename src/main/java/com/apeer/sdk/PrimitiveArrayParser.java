@@ -0,0 +1,258 @@
+package com.apeer.sdk;
+
+import org.json.JSONException;
+
+/**
+ * Parses JSON arrays of numbers or booleans straight from the JSON text into primitive arrays, without creating an object per element
+ */
+final class PrimitiveArrayParser {
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Doubles with up to this many significant digits and a power of ten of at most 22 can be computed exactly from the digits with one multiplication
+     * or division, because both operands are exactly representable and IEEE 754 rounds the result correctly
+     */
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    private final CharSequence text;
+    private final int end;
+    private int position;
+
+    private PrimitiveArrayParser(CharSequence text, int start, int end) {
+        this.text = text;
+        this.position = start;
+        this.end = end;
+    }
+
+    static int[] parseIntArray(CharSequence text, int start, int end) throws JSONException {
+        var parser = new PrimitiveArrayParser(text, start, end);
+        var values = new int[parser.countElements()];
+        for (int i = 0; i < values.length; i++) {
+            var value = parser.parseLong();
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                throw parser.error("Value out of int range");
+            }
+            values[i] = (int) value;
+            parser.skipSeparator(i == values.length - 1);
+        }
+        return values;
+    }
+
+    static long[] parseLongArray(CharSequence text, int start, int end) throws JSONException {
+        var parser = new PrimitiveArrayParser(text, start, end);
+        var values = new long[parser.countElements()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = parser.parseLong();
+            parser.skipSeparator(i == values.length - 1);
+        }
+        return values;
+    }
+
+    static double[] parseDoubleArray(CharSequence text, int start, int end) throws JSONException {
+        var parser = new PrimitiveArrayParser(text, start, end);
+        var values = new double[parser.countElements()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = parser.parseDouble();
+            parser.skipSeparator(i == values.length - 1);
+        }
+        return values;
+    }
+
+    static boolean[] parseBooleanArray(CharSequence text, int start, int end) throws JSONException {
+        var parser = new PrimitiveArrayParser(text, start, end);
+        var values = new boolean[parser.countElements()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = parser.parseBoolean();
+            parser.skipSeparator(i == values.length - 1);
+        }
+        return values;
+    }
+
+    /**
+     * Consumes the opening bracket and counts the elements of the array without moving past it. A comma right before the closing bracket is allowed
+     * like org.json does and does not start another element
+     */
+    private int countElements() {
+        skipWhitespace();
+        if (position >= end || text.charAt(position) != '[') {
+            throw error("Expected '['");
+        }
+        position++;
+        skipWhitespace();
+        if (position < end && text.charAt(position) == ']') {
+            return 0;
+        }
+
+        var count = 1;
+        var previous = '[';
+        for (int i = position; i < end; i++) {
+            var c = text.charAt(i);
+            if (c == ',') {
+                count++;
+            } else if (c == ']' && previous == ',') {
+                count--;
+            } else if (c == '"' || c == '[' || c == '{') {
+                throw error("Expected a primitive value");
+            }
+            if (!Character.isWhitespace(c)) {
+                previous = c;
+            }
+        }
+        return count;
+    }
+
+    private void skipSeparator(boolean last) {
+        skipWhitespace();
+        if (last && consume(',')) {
+            skipWhitespace();
+        }
+        var expected = last ? ']' : ',';
+        if (position >= end || text.charAt(position) != expected) {
+            throw error("Expected '" + expected + "'");
+        }
+        position++;
+        skipWhitespace();
+    }
+
+    private long parseLong() {
+        var negative = consume('-');
+        var start = position;
+        var value = 0L;
+        while (position < end && isDigit(text.charAt(position))) {
+            var digit = text.charAt(position) - '0';
+            if (value < (Long.MIN_VALUE + digit) / 10) {
+                throw error("Value out of long range");
+            }
+            // accumulate negatively so that Long.MIN_VALUE can be parsed
+            value = value * 10 - digit;
+            position++;
+        }
+        if (position == start || (position < end && isNumberPart(text.charAt(position)))) {
+            throw error("Expected an integer");
+        }
+        if (!negative && value == Long.MIN_VALUE) {
+            throw error("Value out of long range");
+        }
+        return negative ? value : -value;
+    }
+
+    private double parseDouble() {
+        var start = position;
+        var negative = consume('-');
+        var mantissa = 0L;
+        var digits = 0;
+        var exponent = 0;
+        var anyDigit = false;
+
+        while (position < end && isDigit(text.charAt(position))) {
+            anyDigit = true;
+            if (mantissa != 0 || text.charAt(position) != '0') {
+                if (digits < 19) {
+                    mantissa = mantissa * 10 + (text.charAt(position) - '0');
+                } else {
+                    exponent++;
+                }
+                digits++;
+            }
+            position++;
+        }
+        if (consume('.')) {
+            while (position < end && isDigit(text.charAt(position))) {
+                anyDigit = true;
+                if (mantissa != 0 || text.charAt(position) != '0') {
+                    if (digits < 19) {
+                        mantissa = mantissa * 10 + (text.charAt(position) - '0');
+                        exponent--;
+                    }
+                    digits++;
+                } else {
+                    exponent--;
+                }
+                position++;
+            }
+        }
+        if (!anyDigit) {
+            throw error("Expected a number");
+        }
+        if (position < end && (text.charAt(position) == 'e' || text.charAt(position) == 'E')) {
+            position++;
+            var negativeExponent = consume('-');
+            if (!negativeExponent) {
+                consume('+');
+            }
+            var exponentStart = position;
+            var explicitExponent = 0;
+            while (position < end && isDigit(text.charAt(position))) {
+                explicitExponent = Math.min(explicitExponent * 10 + (text.charAt(position) - '0'), 100_000);
+                position++;
+            }
+            if (position == exponentStart) {
+                throw error("Expected an exponent");
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        if (mantissa == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        if (digits <= MAX_EXACT_DIGITS && exponent >= -22 && exponent <= 22) {
+            var value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+            return negative ? -value : value;
+        }
+
+        // too many digits to be exact, let the JDK round correctly
+        return Double.parseDouble(text.subSequence(start, position).toString());
+    }
+
+    private boolean parseBoolean() {
+        if (matches("true")) {
+            return true;
+        }
+        if (matches("false")) {
+            return false;
+        }
+        throw error("Expected a boolean");
+    }
+
+    private boolean matches(String literal) {
+        if (position + literal.length() > end) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (text.charAt(position + i) != literal.charAt(i)) {
+                return false;
+            }
+        }
+        position += literal.length();
+        return true;
+    }
+
+    private boolean consume(char c) {
+        if (position < end && text.charAt(position) == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (position < end && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isNumberPart(char c) {
+        return c == '.' || c == 'e' || c == 'E';
+    }
+
+    private JSONException error(String message) {
+        return new JSONException(message + " at character " + position);
+    }
+}
@@ -0,0 +1,65 @@
+package com.apeer.sdk;
+
+import java.nio.file.Path;
+
+/**
+ * Describes a file that was staged to the output folder and how it got there
+ */
+public final class StagedFile {
+    private final Path sourcePath;
+    private final Path targetPath;
+    private final StagingStrategy strategy;
+    private final long size;
+    private final String digest;
+
+    public StagedFile(Path sourcePath, Path targetPath, StagingStrategy strategy, long size) {
+        this(sourcePath, targetPath, strategy, size, null);
+    }
+
+    /**
+     * @param sourcePath The file that was staged or null when the file was written to the output folder directly
+     * @param strategy   How the file was staged or null when it was written to the output folder directly or the output does not report it
+     * @param digest     The checksum of the content as lower case hex string or null when none was computed
+     */
+    public StagedFile(Path sourcePath, Path targetPath, StagingStrategy strategy, long size, String digest) {
+        this.sourcePath = sourcePath;
+        this.targetPath = targetPath;
+        this.strategy = strategy;
+        this.size = size;
+        this.digest = digest;
+    }
+
+    public Path getSourcePath() {
+        return sourcePath;
+    }
+
+    public Path getTargetPath() {
+        return targetPath;
+    }
+
+    public StagingStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * @return The size of the staged file in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return The checksum of the content as lower case hex string or null when none was computed
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    @Override
+    public String toString() {
+        if (sourcePath == null) {
+            return "\"" + targetPath + "\" (written directly, " + size + " bytes)";
+        }
+        return "\"" + sourcePath + "\" -> \"" + targetPath + "\" (" + (strategy != null ? strategy + ", " : "") + size + " bytes)";
+    }
+}
@@ -0,0 +1,115 @@
+package com.apeer.sdk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+/**
+ * The ways a file can be brought into the output folder, from cheapest to most expensive
+ */
+public enum StagingStrategy {
+    /**
+     * Atomically renames the file into the output folder. The source file is gone afterwards. Only possible on the same filesystem. Like the other
+     * strategies it does not replace an existing target, but a target created between the check and the rename is still replaced
+     */
+    MOVE {
+        @Override
+        boolean tryStage(Path sourcePath, Path targetPath, MessageDigest digest) throws IOException {
+            // an atomic rename replaces the target on POSIX filesystems
+            if (Files.exists(targetPath, LinkOption.NOFOLLOW_LINKS)) {
+                throw new FileAlreadyExistsException(targetPath.toString());
+            }
+            try {
+                Files.move(sourcePath, targetPath, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                return false;
+            }
+            if (digest != null) {
+                Digests.update(digest, targetPath);
+            }
+            return true;
+        }
+    },
+
+    /**
+     * Creates a hard link in the output folder that shares the data of the source file. Only possible on the same filesystem. Changes to the source
+     * file after staging also change the output file, so modules that use it must not write to their files afterwards
+     */
+    HARD_LINK {
+        @Override
+        boolean tryStage(Path sourcePath, Path targetPath, MessageDigest digest) throws IOException {
+            try {
+                Files.createLink(targetPath, sourcePath);
+            } catch (UnsupportedOperationException ex) {
+                return false;
+            } catch (FileAlreadyExistsException | NoSuchFileException ex) {
+                throw ex;
+            } catch (FileSystemException ex) {
+                // e.g. EXDEV when source and target are on different filesystems
+                return false;
+            }
+            if (digest != null) {
+                Digests.update(digest, targetPath);
+            }
+            return true;
+        }
+    },
+
+    /**
+     * Copies the file with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} which lets the kernel move the bytes without
+     * passing them through the JVM. Always possible. With a digest the bytes are copied through a buffer instead, so they are hashed in the same pass
+     */
+    TRANSFER {
+        @Override
+        boolean tryStage(Path sourcePath, Path targetPath, MessageDigest digest) throws IOException {
+            try (var source = FileChannel.open(sourcePath, StandardOpenOption.READ);
+                 var target = FileChannel.open(targetPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                if (digest != null) {
+                    copyAndDigest(source, target, digest);
+                    return true;
+                }
+
+                // the size is read again because the file can shrink while it is copied, then transferTo returns 0 at the new end
+                var position = 0L;
+                while (position < source.size()) {
+                    var transferred = source.transferTo(position, source.size() - position, target);
+                    if (transferred == 0) {
+                        break;
+                    }
+                    position += transferred;
+                }
+            }
+            return true;
+        }
+
+        private void copyAndDigest(FileChannel source, FileChannel target, MessageDigest digest) throws IOException {
+            var buffer = ByteBuffer.allocateDirect(Digests.BUFFER_SIZE);
+            while (source.read(buffer) >= 0) {
+                buffer.flip();
+                var hashed = buffer.duplicate();
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                digest.update(hashed);
+                buffer.clear();
+            }
+        }
+    };
+
+    /**
+     * @param digest Receives the content of the staged file or null when no checksum is needed. Strategies that do not copy the bytes read the staged
+     *               file once for it
+     * @return true when the file was staged, false when this strategy is not applicable for the given paths and the next one should be tried
+     */
+    abstract boolean tryStage(Path sourcePath, Path targetPath, MessageDigest digest) throws IOException;
+}
@@ -0,0 +1,37 @@
+package com.apeer.sdk;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the WFE_INPUT_JSON as UTF-8 from a stream, e.g. stdin
+ */
+public class StreamInputSource implements IInputSource {
+    private final InputStream stream;
+    private final String name;
+
+    public StreamInputSource(InputStream stream, String name) {
+        Validate.notNull(stream);
+        Validate.notNull(name);
+
+        this.stream = stream;
+        this.name = name;
+    }
+
+    @Override
+    public CharSequence read() throws ApeerEnvironmentException {
+        try {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new ApeerEnvironmentException("Could not read inputs from " + name, ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,94 @@
+package com.apeer.sdk;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A job of {@link ApeerWorker}, parsed from a descriptor like
+ * {@code {"id":"job-1","input":{"WFE_output_params_file":"out.json"},"outputDir":"/jobs/1/output","env":{"ADK_FSYNC":"FILE"}}}.
+ * Instead of "input" the descriptor may name a file with the WFE_INPUT_JSON in "inputFile"
+ */
+final class WorkerJob {
+    private static final String WFE_INPUT_JSON_KEY = "WFE_INPUT_JSON";
+    private static final String WFE_INPUT_JSON_FILE_KEY = "WFE_INPUT_JSON_FILE";
+
+    private final String inputJson;
+    private final String inputFile;
+    private final String outputDir;
+    private final Map<String, String> env;
+
+    private WorkerJob(String inputJson, String inputFile, String outputDir, Map<String, String> env) {
+        this.inputJson = inputJson;
+        this.inputFile = inputFile;
+        this.outputDir = outputDir;
+        this.env = env;
+    }
+
+    /**
+     * @param defaultId The id of the job for the error message
+     * @throws ApeerEnvironmentException When the descriptor is not valid JSON
+     */
+    static JSONObject decode(String descriptor, String defaultId) throws ApeerEnvironmentException {
+        try {
+            return new JSONObject(descriptor);
+        } catch (JSONException ex) {
+            throw new ApeerEnvironmentException("Could not decode job \"" + defaultId + "\"", ex);
+        }
+    }
+
+    /**
+     * @return The id of the job or the default id when the descriptor has none
+     */
+    static String readId(JSONObject descriptor, String defaultId) {
+        return descriptor.optString("id", defaultId);
+    }
+
+    /**
+     * @param descriptor The descriptor decoded by {@link #decode(String, String)}
+     * @param id         The id of the job, see {@link #readId(JSONObject, String)}
+     * @throws ApeerEnvironmentException When the descriptor is not valid
+     */
+    static WorkerJob parse(JSONObject descriptor, String id) throws ApeerEnvironmentException {
+        var input = descriptor.opt("input");
+        var inputFile = descriptor.optString("inputFile", null);
+        if ((input == null) == (inputFile == null)) {
+            throw new ApeerEnvironmentException("Job \"" + id + "\" must have either \"input\" or \"inputFile\"");
+        }
+
+        var outputDir = descriptor.optString("outputDir", "");
+        if (outputDir.isBlank()) {
+            throw new ApeerEnvironmentException("Job \"" + id + "\" must have an \"outputDir\" so its outputs do not mix with other jobs");
+        }
+
+        var env = new HashMap<String, String>();
+        var envJson = descriptor.optJSONObject("env");
+        if (envJson != null) {
+            for (var key : envJson.keySet()) {
+                env.put(key, envJson.get(key).toString());
+            }
+        }
+
+        return new WorkerJob(input == null ? null : input.toString(), inputFile, outputDir, env);
+    }
+
+    /**
+     * @return The environment of the job. Inputs and the output folder come from the job, other variables from the job's "env" or the process
+     */
+    ISystem createSystem(ISystem processSystem) {
+        return key -> {
+            switch (key) {
+                case WFE_INPUT_JSON_KEY:
+                    return inputJson;
+                case WFE_INPUT_JSON_FILE_KEY:
+                    return inputFile;
+                case ApeerSettings.OUTPUT_DIR_KEY:
+                    return outputDir;
+                default:
+                    return env.containsKey(key) ? env.get(key) : processSystem.getenv(key);
+            }
+        };
+    }
+}
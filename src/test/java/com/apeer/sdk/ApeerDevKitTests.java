@@ -2,9 +2,31 @@ package com.apeer.sdk;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.json.JSONObject;
 import org.mockito.ArgumentCaptor;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -15,9 +37,11 @@ class ApeerDevKitTests {
     private IFileOutput fileOutputMock;
 
     @BeforeEach
-    void beforeEach() {
+    void beforeEach() throws ApeerOutputException {
         systemMock = mock(ISystem.class);
         fileOutputMock = mock(IFileOutput.class);
+        when(fileOutputMock.stageFile(any(), any())).thenAnswer(invocation -> new StagedFile(
+                invocation.getArgument(0), invocation.getArgument(1), StagingStrategy.TRANSFER, 0));
     }
 
     /*
@@ -52,6 +76,14 @@ class ApeerDevKitTests {
         assertNotNull(new ApeerDevKit(systemMock, fileOutputMock));
     }
 
+    @Test
+    void ctor_readsWfeInputJsonFromFileWhenConfigured(@TempDir Path tempDir) throws IOException, ApeerEnvironmentException, ApeerInputException {
+        var inputFile = Files.writeString(tempDir.resolve("input.json"), "{\"WFE_output_params_file\":\"out.json\",\"threshold\":7}");
+        when(systemMock.getenv("WFE_INPUT_JSON_FILE")).thenReturn(inputFile.toString());
+        var adk = new ApeerDevKit(systemMock, fileOutputMock);
+        assertEquals(7, adk.getInput("threshold", int.class));
+    }
+
     /*
      * inputs
      */
@@ -129,6 +161,38 @@ class ApeerDevKitTests {
         assertArrayEquals(new double[]{42, 47.11}, input, Double.MIN_VALUE);
     }
 
+    @Test
+    void getInput_returnsPrimitiveArraysFromInputs() throws ApeerEnvironmentException, ApeerInputException {
+        when(systemMock.getenv("WFE_INPUT_JSON"))
+                .thenReturn("{\"WFE_output_params_file\":\"out.json\",\"ints\":[1,2],\"longs\":[3],\"flags\":[true,false]}");
+        var adk = new ApeerDevKit(systemMock, fileOutputMock);
+        assertArrayEquals(new int[]{1, 2}, adk.getInput("ints", int[].class));
+        assertArrayEquals(new long[]{3}, adk.getInput("longs", long[].class));
+        assertArrayEquals(new boolean[]{true, false}, adk.getInput("flags", boolean[].class));
+    }
+
+    @Test
+    void getDoubleArray_returnsNumbersFromInputs() throws ApeerEnvironmentException, ApeerInputException {
+        when(systemMock.getenv("WFE_INPUT_JSON"))
+                .thenReturn("{\"WFE_output_params_file\":\"out.json\",\"numbers\":[42,47.11,-1e-6]}");
+        var adk = new ApeerDevKit(systemMock, fileOutputMock);
+        assertArrayEquals(new double[]{42, 47.11, -1e-6}, adk.getDoubleArray("numbers"), Double.MIN_VALUE);
+        assertEquals(47.11, adk.getDoubleBuffer("numbers").get(1), Double.MIN_VALUE);
+    }
+
+    @Test
+    void getIntArray_throwsExceptionWhenValueIsNotAnIntArray() throws ApeerEnvironmentException {
+        when(systemMock.getenv("WFE_INPUT_JSON"))
+                .thenReturn("{\"WFE_output_params_file\":\"out.json\",\"numbers\":[42,47.11]}");
+        var adk = new ApeerDevKit(systemMock, fileOutputMock);
+        assertThrows(
+                ApeerInputException.class,
+                () -> adk.getIntArray("numbers"));
+        assertThrows(
+                ApeerInputException.class,
+                () -> adk.getIntArray("some-key"));
+    }
+
     /*
      * outputs
      */
@@ -142,7 +206,7 @@ class ApeerDevKitTests {
         adk.finalizeModule();
 
         var expectedJson = "{\"key_one\":\"value_one\"}";
-        verify(fileOutputMock).writeTextToFile("/output/out.json", expectedJson);
+        assertEquals(expectedJson, captureOutputParams());
     }
 
     @Test
@@ -155,11 +219,10 @@ class ApeerDevKitTests {
         adk.setOutput("key_three", -1e-6);
         adk.finalizeModule();
 
-        var capture = ArgumentCaptor.forClass(String.class);
-        verify(fileOutputMock).writeTextToFile(anyString(), capture.capture());
-        assertTrue(capture.getValue().contains("\"key_one\":42"));
-        assertTrue(capture.getValue().contains("\"key_two\":47.11"));
-        assertTrue(capture.getValue().contains("\"key_three\":-1.0E-6"));
+        var outputParams = captureOutputParams();
+        assertTrue(outputParams.contains("\"key_one\":42"));
+        assertTrue(outputParams.contains("\"key_two\":47.11"));
+        assertTrue(outputParams.contains("\"key_three\":-1.0E-6"));
     }
 
     @Test
@@ -171,10 +234,9 @@ class ApeerDevKitTests {
         adk.setOutput("key_false", false);
         adk.finalizeModule();
 
-        var capture = ArgumentCaptor.forClass(String.class);
-        verify(fileOutputMock).writeTextToFile(anyString(), capture.capture());
-        assertTrue(capture.getValue().contains("\"key_true\":true"));
-        assertTrue(capture.getValue().contains("\"key_false\":false"));
+        var outputParams = captureOutputParams();
+        assertTrue(outputParams.contains("\"key_true\":true"));
+        assertTrue(outputParams.contains("\"key_false\":false"));
     }
 
     @Test
@@ -185,9 +247,94 @@ class ApeerDevKitTests {
         adk.setOutput("key_string_array", new String[]{"value1", "value2", "value3"});
         adk.finalizeModule();
 
-        var capture = ArgumentCaptor.forClass(String.class);
-        verify(fileOutputMock).writeTextToFile(anyString(), capture.capture());
-        assertTrue(capture.getValue().contains("\"key_string_array\":[\"value1\",\"value2\",\"value3\"]"));
+        var outputParams = captureOutputParams();
+        assertTrue(outputParams.contains("\"key_string_array\":[\"value1\",\"value2\",\"value3\"]"));
+    }
+
+    @Test
+    void encodesPrimitiveArrayOutputsToJson() throws ApeerEnvironmentException, ApeerOutputException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\"}");
+        var adk = new ApeerDevKit(systemMock, fileOutputMock);
+
+        adk.setOutput("areas", new double[]{42.0, 0.1, -1e-6});
+        adk.setOutput("intensities", new float[]{0.1f, 2.5f});
+        adk.setOutput("labels", new int[]{1, -2});
+        adk.setOutput("ids", new long[]{Long.MAX_VALUE});
+        adk.finalizeModule();
+
+        assertEquals(
+                "{\"areas\":[42,0.1,-1.0E-6],\"ids\":[9223372036854775807],\"intensities\":[0.1,2.5],\"labels\":[1,-2]}",
+                captureOutputParams());
+    }
+
+    @Test
+    void finalizeModule_failsWritingOutputParamsWhenArrayContainsNaN() throws ApeerEnvironmentException, ApeerOutputException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\"}");
+        var adk = new ApeerDevKit(systemMock, fileOutputMock);
+
+        adk.setOutput("areas", new double[]{1, Double.NaN});
+        adk.finalizeModule();
+
+        var outputParams = ArgumentCaptor.forClass(IJsonContent.class);
+        verify(fileOutputMock).writeJsonToFile(anyString(), outputParams.capture());
+        assertThrows(IOException.class, () -> outputParams.getValue().writeTo(new StringWriter()));
+    }
+
+    @Test
+    void finalizeModule_failsWritingOutputParamsWhenArrayContainsInfinity() throws ApeerEnvironmentException, ApeerOutputException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\"}");
+        var adk = new ApeerDevKit(systemMock, fileOutputMock);
+
+        adk.setOutput("areas", new double[]{Double.NEGATIVE_INFINITY, 1});
+        adk.finalizeModule();
+
+        var outputParams = ArgumentCaptor.forClass(IJsonContent.class);
+        verify(fileOutputMock).writeJsonToFile(anyString(), outputParams.capture());
+        assertThrows(IOException.class, () -> outputParams.getValue().writeTo(new StringWriter()));
+    }
+
+    @Test
+    void collectsOutputsFromManyThreads() throws ApeerEnvironmentException, ApeerOutputException, InterruptedException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\"}");
+        var adk = new ApeerDevKit(systemMock, fileOutputMock);
+
+        var threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            var offset = t * 100;
+            threads[t] = new Thread(() -> {
+                for (int i = offset; i < offset + 100; i++) {
+                    try {
+                        adk.setOutput(String.format("key_%03d", i), i);
+                    } catch (ApeerOutputException ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+        adk.finalizeModule();
+
+        var expected = new StringBuilder("{");
+        for (int i = 0; i < 800; i++) {
+            expected.append(i > 0 ? "," : "").append(String.format("\"key_%03d\":%d", i, i));
+        }
+        assertEquals(expected.append("}").toString(), captureOutputParams());
+    }
+
+    @Test
+    void rejectsOutputsAfterFinalize() throws ApeerEnvironmentException, ApeerOutputException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\"}");
+        var adk = new ApeerDevKit(systemMock, fileOutputMock);
+
+        adk.finalizeModule();
+
+        assertThrows(ApeerOutputException.class, () -> adk.setOutput("key", 42));
+        assertThrows(ApeerOutputException.class, () -> adk.setFileOutput("key", "file.png"));
+        assertThrows(ApeerOutputException.class, adk::finalizeModule);
+        verify(fileOutputMock, never()).stageFile(any(), any());
     }
 
     /*
@@ -204,12 +351,11 @@ class ApeerDevKitTests {
 
         var captureSrc = ArgumentCaptor.forClass(Path.class);
         var captureDest = ArgumentCaptor.forClass(Path.class);
-        var captureOutput = ArgumentCaptor.forClass(String.class);
-        verify(fileOutputMock).moveFile(captureSrc.capture(), captureDest.capture());
-        verify(fileOutputMock).writeTextToFile(anyString(), captureOutput.capture());
+        var outputParams = captureOutputParams();
+        verify(fileOutputMock).stageFile(captureSrc.capture(), captureDest.capture());
         assertEquals(Path.of("path/to/file.png"), captureSrc.getValue());
         assertEquals(Path.of("/output/path/to/file.png"), captureDest.getValue());
-        assertEquals("{\"segmented-image\":\"/output/path/to/file.png\"}", captureOutput.getValue());
+        assertEquals("{\"segmented-image\":\"/output/path/to/file.png\"}", outputParams);
     }
 
     @Test
@@ -220,7 +366,57 @@ class ApeerDevKitTests {
         adk.setFileOutput("segmented-image", "/output/path/to/file.png");
         adk.finalizeModule();
 
-        verify(fileOutputMock, never()).moveFile(any(), any());
+        verify(fileOutputMock, never()).stageFile(any(), any());
+    }
+
+    @Test
+    void setsStreamedFileOutputWhenStreamIsClosed() throws ApeerOutputException, ApeerEnvironmentException, IOException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\"}");
+        var written = new ByteArrayOutputStream();
+        when(fileOutputMock.openFile(any())).thenReturn(Channels.newChannel(written));
+        var adk = new ApeerDevKit(systemMock, fileOutputMock);
+
+        try (var stream = adk.openFileOutput("segmented-image", "path/to/file.png")) {
+            stream.write(new byte[]{1, 2, 3});
+        }
+        adk.finalizeModule();
+
+        var outputParams = captureOutputParams();
+        verify(fileOutputMock).openFile(Path.of("/output/path/to/file.png"));
+        verify(fileOutputMock, never()).stageFile(any(), any());
+        assertArrayEquals(new byte[]{1, 2, 3}, written.toByteArray());
+        assertEquals("{\"segmented-image\":\"/output/path/to/file.png\"}", outputParams);
+    }
+
+    @Test
+    void doesNotSetStreamedFileOutputWhileStreamIsOpen() throws ApeerOutputException, ApeerEnvironmentException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\"}");
+        when(fileOutputMock.openFile(any())).thenReturn(Channels.newChannel(new ByteArrayOutputStream()));
+        var adk = new ApeerDevKit(systemMock, fileOutputMock);
+
+        adk.openFileOutputChannel("segmented-image", "file.png");
+        adk.finalizeModule();
+
+        assertEquals("{}", captureOutputParams());
+    }
+
+    @Test
+    void doesNotSetStreamedFileOutputWhenWritingFailed() throws ApeerOutputException, ApeerEnvironmentException, IOException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\"}");
+        var channel = mock(WritableByteChannel.class);
+        when(channel.write(any())).thenThrow(new IOException("No space left on device"));
+        when(fileOutputMock.openFile(any())).thenReturn(channel);
+        var adk = new ApeerDevKit(systemMock, fileOutputMock);
+
+        assertThrows(IOException.class, () -> {
+            try (var stream = adk.openFileOutput("segmented-image", "file.png")) {
+                stream.write(new byte[]{1, 2, 3});
+            }
+        });
+        adk.finalizeModule();
+
+        verify(channel).close();
+        assertEquals("{}", captureOutputParams());
     }
 
     /*
@@ -235,18 +431,131 @@ class ApeerDevKitTests {
         adk.setFileOutput("segmented-images", new String[]{"path/to/file1.png", "path/to/file2.png"});
         adk.finalizeModule();
 
-        var captureSrc = ArgumentCaptor.forClass(Path.class);
-        var captureDest = ArgumentCaptor.forClass(Path.class);
-        var captureOutput = ArgumentCaptor.forClass(String.class);
-        verify(fileOutputMock, times(2)).moveFile(captureSrc.capture(), captureDest.capture());
-        verify(fileOutputMock).writeTextToFile(anyString(), captureOutput.capture());
-        assertEquals(Path.of("path/to/file1.png"), captureSrc.getAllValues().get(0));
-        assertEquals(Path.of("path/to/file2.png"), captureSrc.getAllValues().get(1));
-        assertEquals(Path.of("/output/path/to/file1.png"), captureDest.getAllValues().get(0));
-        assertEquals(Path.of("/output/path/to/file2.png"), captureDest.getAllValues().get(1));
+        var outputParams = captureOutputParams();
+        verify(fileOutputMock, times(2)).stageFile(any(), any());
+        verify(fileOutputMock).stageFile(Path.of("path/to/file1.png"), Path.of("/output/path/to/file1.png"));
+        verify(fileOutputMock).stageFile(Path.of("path/to/file2.png"), Path.of("/output/path/to/file2.png"));
         assertEquals(
                 "{\"segmented-images\":[\"/output/path/to/file1.png\",\"/output/path/to/file2.png\"]}",
-                captureOutput.getValue());
+                outputParams);
+    }
+
+    @Test
+    void stagesFilesThroughMoveFileOfOutputsWithoutStageFile(@TempDir Path tempDir) throws IOException, ApeerException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\"}");
+        var image = Files.writeString(tempDir.resolve("image.png"), "pixels");
+        var customOutput = new MovingFileOutput();
+        var adk = new ApeerDevKit(systemMock, customOutput);
+
+        adk.setFileOutput("image", image.toString());
+        adk.finalizeModule();
+
+        assertEquals(List.of(image + " -> " + Path.of("/output/" + image)), customOutput.moves);
+        assertEquals("/output/" + image, new JSONObject(customOutput.texts.get("/output/out.json")).getString("image"));
+    }
+
+    @Test
+    void keepsOrderOfFilesWhenStagingInParallel() throws ApeerOutputException, ApeerEnvironmentException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\"}");
+        when(systemMock.getenv("ADK_STAGING_PARALLELISM")).thenReturn("4");
+        var adk = new ApeerDevKit(systemMock, fileOutputMock);
+
+        var files = new String[50];
+        var expected = new StringBuilder("{\"tiles\":[");
+        for (int i = 0; i < files.length; i++) {
+            files[i] = "tile" + i + ".png";
+            expected.append(i > 0 ? "," : "").append("\"/output/tile").append(i).append(".png\"");
+        }
+        expected.append("]}");
+        adk.setFileOutput("tiles", files);
+        adk.finalizeModule();
+
+        var outputParams = captureOutputParams();
+        verify(fileOutputMock, times(50)).stageFile(any(), any());
+        assertEquals(expected.toString(), outputParams);
+    }
+
+    @Test
+    void stagesMatchingFilesOfDirectory(@TempDir Path tempDir) throws IOException, ApeerException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\"}");
+        when(systemMock.getenv("ADK_MAX_OPEN_FILES")).thenReturn("1");
+        var pyramid = Files.createDirectories(tempDir.resolve("pyramid"));
+        Files.createDirectories(pyramid.resolve("1"));
+        Files.writeString(pyramid.resolve("0.png"), "tile");
+        Files.writeString(pyramid.resolve("1/0.png"), "tile");
+        Files.writeString(pyramid.resolve("1/0.json"), "{}");
+        var adk = new ApeerDevKit(systemMock, fileOutputMock);
+
+        adk.setDirectoryOutput("tiles", pyramid.toString(), new String[]{"**.png"}, null);
+        adk.finalizeModule();
+
+        var target = Path.of("/output/" + pyramid);
+        verify(fileOutputMock).stageFile(pyramid.resolve("0.png"), target.resolve("0.png"));
+        verify(fileOutputMock).stageFile(pyramid.resolve("1/0.png"), target.resolve("1/0.png"));
+        verify(fileOutputMock, times(2)).stageFile(any(), any());
+        assertEquals("{\"tiles\":[\"" + target.resolve("0.png") + "\",\"" + target.resolve("1/0.png") + "\"]}", captureOutputParams());
+    }
+
+    @Test
+    void reportsAllFailedFilesTogether() throws ApeerOutputException, ApeerEnvironmentException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\"}");
+        when(systemMock.getenv("ADK_STAGING_PARALLELISM")).thenReturn("2");
+        doThrow(new ApeerOutputException("file1 failed")).when(fileOutputMock).stageFile(eq(Path.of("file1.png")), any());
+        doThrow(new ApeerOutputException("file3 failed")).when(fileOutputMock).stageFile(eq(Path.of("file3.png")), any());
+        var adk = new ApeerDevKit(systemMock, fileOutputMock);
+
+        var ex = assertThrows(
+                ApeerOutputException.class,
+                () -> adk.setFileOutput("images", new String[]{"file1.png", "file2.png", "file3.png"}));
+
+        verify(fileOutputMock, times(3)).stageFile(any(), any());
+        assertEquals(2, ex.getSuppressed().length);
+        assertTrue(ex.getMessage().contains("file1 failed"));
+        assertTrue(ex.getMessage().contains("file3 failed"));
+    }
+
+    /*
+     * asynchronous file outputs
+     */
+
+    @Test
+    void asyncFileOutputsAreStagedBeforeOutputParamsAreWritten() throws ApeerOutputException, ApeerEnvironmentException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\"}");
+        when(systemMock.getenv("ADK_ASYNC_FILE_OUTPUT")).thenReturn("true");
+        var adk = new ApeerDevKit(systemMock, fileOutputMock);
+
+        adk.setFileOutput("image", "file.png");
+        adk.setFileOutput("tiles", new String[]{"tile1.png", "tile2.png"});
+        adk.finalizeModule();
+
+        var inOrder = inOrder(fileOutputMock);
+        inOrder.verify(fileOutputMock, times(3)).stageFile(any(), any());
+        inOrder.verify(fileOutputMock).writeJsonToFile(eq("/output/out.json"), any());
+    }
+
+    @Test
+    void asyncFileOutputErrorsAreThrownByFinalizeWithKey() throws ApeerOutputException, ApeerEnvironmentException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\"}");
+        when(systemMock.getenv("ADK_ASYNC_FILE_OUTPUT")).thenReturn("true");
+        doThrow(new ApeerOutputException("tile2 failed")).when(fileOutputMock).stageFile(eq(Path.of("tile2.png")), any());
+        var adk = new ApeerDevKit(systemMock, fileOutputMock);
+
+        adk.setFileOutput("image", "file.png");
+        adk.setFileOutput("tiles", new String[]{"tile1.png", "tile2.png"});
+        var ex = assertThrows(ApeerOutputException.class, adk::finalizeModule);
+
+        assertTrue(ex.getMessage().contains("[tiles]"));
+        assertTrue(ex.getMessage().contains("tile2 failed"));
+        verify(fileOutputMock, never()).writeJsonToFile(anyString(), any());
+    }
+
+    @Test
+    void ctor_cannotInitWhenStagingParallelismIsInvalid() {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\"}");
+        when(systemMock.getenv("ADK_STAGING_PARALLELISM")).thenReturn("0");
+        assertThrows(
+                ApeerEnvironmentException.class,
+                () -> new ApeerDevKit(systemMock, fileOutputMock));
     }
 
     @Test
@@ -257,9 +566,307 @@ class ApeerDevKitTests {
         adk.setFileOutput("segmented-images", new String[]{"/output/path/to/file1.png", "/output/path/to/file2.png"});
         adk.finalizeModule();
 
-        var captureOutput = ArgumentCaptor.forClass(String.class);
-        verify(fileOutputMock, never()).moveFile(any(), any());
-        verify(fileOutputMock).writeTextToFile(anyString(), captureOutput.capture());
-        assertEquals(expectedOutputFile, captureOutput.getAllValues().get(0));
+        var outputParams = captureOutputParams();
+        verify(fileOutputMock, never()).stageFile(any(), any());
+        assertEquals(expectedOutputFile, outputParams);
+    }
+
+    /*
+     * metrics
+     */
+
+    @Test
+    void reportsPhasesToMetricsSink() throws ApeerOutputException, ApeerEnvironmentException, ApeerInputException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\",\"threshold\":7}");
+        var metrics = mock(IMetricsSink.class);
+        when(metrics.isEnabled()).thenReturn(true);
+        when(fileOutputMock.stageFile(any(), any())).thenAnswer(invocation -> new StagedFile(
+                invocation.getArgument(0), invocation.getArgument(1), StagingStrategy.TRANSFER, 42));
+        var adk = new ApeerDevKit(systemMock, fileOutputMock, new EnvironmentInputSource(systemMock, "WFE_INPUT_JSON"), metrics, null);
+
+        adk.getInput("threshold", int.class);
+        adk.setFileOutput("image", "file.png");
+        adk.finalizeModule();
+
+        verify(metrics).record(eq("input.read"), isNull(), anyLong(), eq(51L));
+        verify(metrics).record(eq("input.index"), isNull(), anyLong(), eq(51L));
+        verify(metrics).record(eq("input.decode"), eq("threshold"), anyLong(), eq(1L));
+        verify(metrics).record(eq("output.stage"), eq("image"), anyLong(), eq(42L));
+        verify(metrics).record(eq("finalize.await"), isNull(), anyLong(), eq(0L));
+        verify(metrics).record(eq("finalize.write"), isNull(), anyLong(), eq(0L));
+        verify(metrics).flush();
+    }
+
+    @Test
+    void doesNotTimeInputsWhenMetricsAreDisabled() throws ApeerOutputException, ApeerEnvironmentException, ApeerInputException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\",\"threshold\":7}");
+        var metrics = mock(IMetricsSink.class);
+        var adk = new ApeerDevKit(systemMock, fileOutputMock, new EnvironmentInputSource(systemMock, "WFE_INPUT_JSON"), metrics, null);
+
+        adk.getInput("threshold", int.class);
+        adk.setFileOutput("image", "file.png");
+        adk.finalizeModule();
+
+        verify(metrics, never()).record(eq("input.decode"), any(), anyLong(), anyLong());
+        verify(metrics, never()).record(eq("output.stage"), any(), anyLong(), anyLong());
+        verify(metrics, never()).flush();
+    }
+
+    @Test
+    void prefetchesInputsThatAreFilesWhenEnabled(@TempDir Path tempDir) throws IOException, ApeerException {
+        var image = Files.write(tempDir.resolve("image.bin"), new byte[100]);
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\",\"image\":" + JSONObject.quote(image.toString())
+                + ",\"mode\":\"fast\",\"threshold\":7}");
+        when(systemMock.getenv("ADK_PREFETCH")).thenReturn("true");
+        var metrics = mock(IMetricsSink.class);
+        when(metrics.isEnabled()).thenReturn(true);
+        var adk = new ApeerDevKit(systemMock, fileOutputMock, new EnvironmentInputSource(systemMock, "WFE_INPUT_JSON"), metrics, null);
+
+        assertEquals(image.toString(), adk.getInput("image", String.class));
+        adk.finalizeModule();
+
+        verify(metrics).record(eq("input.prefetch"), eq("image"), anyLong(), anyLong());
+        verify(metrics, never()).record(eq("input.prefetch"), eq("mode"), anyLong(), anyLong());
+        verify(metrics, never()).record(eq("input.prefetch"), eq("threshold"), anyLong(), anyLong());
+    }
+
+    @Test
+    void prefetchesFilesOfInputsHandedOverAsArraysAndLists(@TempDir Path tempDir) throws IOException, ApeerException {
+        var first = Files.write(tempDir.resolve("first.bin"), new byte[100]);
+        var second = Files.write(tempDir.resolve("second.bin"), new byte[100]);
+        var mask = Files.write(tempDir.resolve("mask.bin"), new byte[100]);
+        when(systemMock.getenv("ADK_PREFETCH")).thenReturn("true");
+        var metrics = mock(IMetricsSink.class);
+        when(metrics.isEnabled()).thenReturn(true);
+        var inputValues = Map.<String, Object>of("WFE_output_params_file", "out.json", "images", new String[] { first.toString(), second.toString() },
+                "masks", List.of(mask.toString()), "thresholds", new int[] { 1, 2 });
+        var adk = new ApeerDevKit(systemMock, fileOutputMock, null, inputValues, null, metrics, null);
+
+        assertArrayEquals(new String[] { first.toString(), second.toString() }, adk.getInput("images", String[].class));
+        adk.finalizeModule();
+
+        verify(metrics).record(eq("input.prefetch"), eq("images"), anyLong(), anyLong());
+        verify(metrics).record(eq("input.prefetch"), eq("masks"), anyLong(), anyLong());
+        verify(metrics, never()).record(eq("input.prefetch"), eq("thresholds"), anyLong(), anyLong());
+    }
+
+    @Test
+    void readsFileInputInChunks(@TempDir Path tempDir) throws IOException, ApeerException {
+        var image = Files.write(tempDir.resolve("image.bin"), new byte[10_000]);
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\",\"image\":" + JSONObject.quote(image.toString()) + "}");
+        when(systemMock.getenv("ADK_CHUNK_SIZE")).thenReturn("1000");
+        var metrics = mock(IMetricsSink.class);
+        when(metrics.isEnabled()).thenReturn(true);
+        var adk = new ApeerDevKit(systemMock, fileOutputMock, new EnvironmentInputSource(systemMock, "WFE_INPUT_JSON"), metrics, null);
+        var offsets = new ConcurrentSkipListSet<Long>();
+
+        assertEquals(10_000, adk.readFileInput("image", (offset, chunk) -> offsets.add(offset)));
+
+        // the chunk size is rounded up to 4 KiB
+        assertEquals(Set.of(0L, 4096L, 8192L), offsets);
+        verify(metrics).record(eq("input.chunks"), eq("image"), anyLong(), eq(10_000L));
+    }
+
+    @Test
+    void reportsExecutorsOnFinalize() throws ApeerException, ExecutionException, InterruptedException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\"}");
+        when(systemMock.getenv("ADK_IO_PARALLELISM")).thenReturn("2");
+        when(systemMock.getenv("ADK_VIRTUAL_THREADS")).thenReturn("false");
+        var metrics = mock(IMetricsSink.class);
+        when(metrics.isEnabled()).thenReturn(true);
+        var adk = new ApeerDevKit(systemMock, fileOutputMock, new EnvironmentInputSource(systemMock, "WFE_INPUT_JSON"), metrics, null);
+
+        assertEquals(6, adk.getComputePool().submit(() -> 2 * 3).get());
+        assertTrue(adk.getIoExecutor().submit(() -> Thread.currentThread().getName()).get().startsWith("adk-io-"));
+        adk.finalizeModule();
+
+        verify(metrics).record(eq("process.cpu"), isNull(), anyLong(), eq(0L));
+        verify(metrics).record(eq("executor.io"), isNull(), anyLong(), eq(0L));
+        assertThrows(IllegalStateException.class, adk::getIoExecutor);
+    }
+
+    @Test
+    void setFileOutput_stagesFilesWhenCalledFromEveryIoThread(@TempDir Path tempDir) throws Exception {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\"}");
+        when(systemMock.getenv("ADK_OUTPUT_DIR")).thenReturn(tempDir.resolve("output").toString());
+        when(systemMock.getenv("ADK_STAGING_PARALLELISM")).thenReturn("2");
+        var executors = new ManagedExecutors(1, 2, false);
+        var adk = new ApeerDevKit(systemMock, new OutputJsonFileWriter(), new EnvironmentInputSource(systemMock, "WFE_INPUT_JSON"), null, null, null,
+                null, executors);
+        var bothRunning = new CountDownLatch(2);
+        var futures = new ArrayList<Future<?>>();
+        for (var task : List.of("a", "b")) {
+            var files = new String[]{Files.writeString(tempDir.resolve(task + "1.bin"), task).toString(),
+                    Files.writeString(tempDir.resolve(task + "2.bin"), task).toString()};
+            futures.add(executors.getIoExecutor().submit(() -> {
+                // both threads of the I/O executor wait for files, so the stagers queued on it cannot run
+                bothRunning.countDown();
+                bothRunning.await();
+                adk.setFileOutput(task, files);
+                return null;
+            }));
+        }
+
+        for (var future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        assertEquals("a", Files.readString(Path.of(tempDir.resolve("output") + tempDir.resolve("a2.bin").toString())));
+        assertEquals("b", Files.readString(Path.of(tempDir.resolve("output") + tempDir.resolve("b1.bin").toString())));
+    }
+
+    @Test
+    void finalizeModule_waitsForIoTasksOfTheModule() throws ApeerException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\"}");
+        var adk = new ApeerDevKit(systemMock, fileOutputMock, new EnvironmentInputSource(systemMock, "WFE_INPUT_JSON"), null, null, null, null,
+                new ManagedExecutors(1, 1, false));
+        var executor = adk.getIoExecutor();
+
+        executor.execute(() -> {
+            try {
+                Thread.sleep(100);
+                adk.setOutput("first", 1);
+            } catch (InterruptedException | ApeerOutputException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        // queued behind the first task on the only thread, so finalizeModule() runs it itself
+        executor.execute(() -> {
+            try {
+                adk.setOutput("second", 2);
+            } catch (ApeerOutputException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        adk.finalizeModule();
+
+        assertEquals("{\"first\":1,\"second\":2}", captureOutputParams());
+        assertThrows(UnsupportedOperationException.class, executor::shutdown);
+    }
+
+    @Test
+    void sharesExecutorsBetweenAdksOfTheProcess() throws ApeerException, ExecutionException, InterruptedException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\"}");
+        var first = new ApeerDevKit(systemMock, fileOutputMock);
+        var second = new ApeerDevKit(systemMock, fileOutputMock);
+
+        assertSame(first.getComputePool(), second.getComputePool());
+        first.finalizeModule();
+
+        assertEquals(6, second.getComputePool().submit(() -> 2 * 3).get());
+        assertEquals(6, new ApeerDevKit(systemMock, fileOutputMock).getComputePool().submit(() -> 2 * 3).get());
+    }
+
+    @Test
+    void writesMetricsFileNextToOutputParamsWhenEnabled() throws ApeerOutputException, ApeerEnvironmentException, ApeerInputException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\",\"threshold\":7}");
+        when(systemMock.getenv("ADK_METRICS")).thenReturn("true");
+        var adk = new ApeerDevKit(systemMock, fileOutputMock);
+
+        adk.getInput("threshold", int.class);
+        adk.finalizeModule();
+
+        var metrics = captureJson("/output/out.metrics.json");
+        assertTrue(metrics.startsWith("{\"metrics\":[{\"phase\":\"input.read\",\"nanos\":"));
+        assertTrue(metrics.contains("{\"phase\":\"input.decode\",\"key\":\"threshold\",\"nanos\":"));
+        assertTrue(metrics.contains("{\"phase\":\"finalize.write\",\"nanos\":"));
+    }
+
+    /*
+     * manifest
+     */
+
+    @Test
+    void writesManifestBeforeOutputParamsWhenDigestIsEnabled() throws ApeerOutputException, ApeerEnvironmentException, IOException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\"}");
+        when(systemMock.getenv("ADK_DIGEST")).thenReturn("SHA-256");
+        when(systemMock.getenv("ADK_DIGEST_OUTPUTS")).thenReturn("true");
+        when(fileOutputMock.stageFile(any(), any())).thenAnswer(invocation -> new StagedFile(
+                invocation.getArgument(0), invocation.getArgument(1), StagingStrategy.TRANSFER, 6, "d1g35t"));
+        var adk = new ApeerDevKit(systemMock, fileOutputMock);
+
+        adk.setFileOutput("image", "file.png");
+        adk.setFileOutput("tiles", new String[]{"tile1.png", "/output/tile2.png"});
+        adk.finalizeModule();
+
+        var inOrder = inOrder(fileOutputMock);
+        inOrder.verify(fileOutputMock).writeJsonToFile(eq("/output/out.manifest.json"), any());
+        inOrder.verify(fileOutputMock).writeJsonToFile(eq("/output/out.json"), any());
+        assertEquals("{\"algorithm\":\"SHA-256\",\"files\":["
+                        + "{\"path\":\"/output/file.png\",\"size\":6,\"digest\":\"d1g35t\"},"
+                        + "{\"path\":\"/output/tile1.png\",\"size\":6,\"digest\":\"d1g35t\"}]}",
+                captureJson("/output/out.manifest.json"));
+        assertEquals("{\"image\":\"/output/file.png\",\"image_digest\":\"d1g35t\","
+                        + "\"tiles\":[\"/output/tile1.png\",\"/output/tile2.png\"],\"tiles_digest\":[\"d1g35t\",null]}",
+                captureOutputParams());
+    }
+
+    @Test
+    void addsDigestsOnlyForFileOutputs() throws ApeerOutputException, ApeerEnvironmentException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\"}");
+        when(systemMock.getenv("ADK_DIGEST")).thenReturn("SHA-256");
+        when(systemMock.getenv("ADK_DIGEST_OUTPUTS")).thenReturn("true");
+        when(fileOutputMock.stageFile(any(), any())).thenAnswer(invocation -> new StagedFile(
+                invocation.getArgument(0), invocation.getArgument(1), StagingStrategy.TRANSFER, 6, "d1g35t"));
+        var adk = new ApeerDevKit(systemMock, fileOutputMock);
+
+        adk.setFileOutput("image", "/data/file.png");
+        adk.setOutput("labels", new String[]{"x", "y"});
+        adk.setFileOutput("mask", "mask.png");
+        adk.setOutput("mask", "not a file anymore");
+        adk.finalizeModule();
+
+        assertEquals("{\"image\":\"/output//data/file.png\",\"image_digest\":\"d1g35t\",\"labels\":[\"x\",\"y\"],"
+                + "\"mask\":\"not a file anymore\"}", captureOutputParams());
+    }
+
+    @Test
+    void addsDigestOfStreamedFileOutputsToManifest(@TempDir Path tempDir) throws ApeerOutputException, ApeerEnvironmentException, IOException {
+        when(systemMock.getenv("WFE_INPUT_JSON")).thenReturn("{\"WFE_output_params_file\":\"out.json\"}");
+        when(systemMock.getenv("ADK_DIGEST")).thenReturn("SHA-256");
+        when(fileOutputMock.openFile(any())).thenReturn(Files.newByteChannel(tempDir.resolve("mask.png"), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+        var adk = new ApeerDevKit(systemMock, fileOutputMock);
+
+        try (var stream = adk.openFileOutput("mask", "mask.png")) {
+            stream.write("abc".getBytes(StandardCharsets.UTF_8));
+        }
+        adk.finalizeModule();
+
+        assertEquals("{\"algorithm\":\"SHA-256\",\"files\":[{\"path\":\"/output/mask.png\",\"size\":3,"
+                        + "\"digest\":\"ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad\"}]}",
+                captureJson("/output/out.manifest.json"));
+    }
+
+    private String captureOutputParams() throws ApeerOutputException {
+        return captureJson("/output/out.json");
+    }
+
+    private String captureJson(String path) throws ApeerOutputException {
+        var capture = ArgumentCaptor.forClass(IJsonContent.class);
+        verify(fileOutputMock).writeJsonToFile(eq(path), capture.capture());
+        var writer = new StringWriter();
+        try {
+            capture.getValue().writeTo(writer);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Implements only the abstract methods of {@link IFileOutput} like outputs written before {@link IFileOutput#stageFile} existed
+     */
+    private static final class MovingFileOutput implements IFileOutput {
+        private final List<String> moves = Collections.synchronizedList(new ArrayList<>());
+        private final Map<String, String> texts = new ConcurrentHashMap<>();
+
+        @Override
+        public void writeTextToFile(String filePath, String text) {
+            texts.put(filePath, text);
+        }
+
+        @Override
+        public void moveFile(Path sourcePath, Path targetPath) {
+            moves.add(sourcePath + " -> " + targetPath);
+        }
     }
 }
@@ -0,0 +1,114 @@
+package com.apeer.sdk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ApeerPipelineTests {
+
+    @TempDir
+    Path tempDir;
+
+    private final ISystem systemMock = mock(ISystem.class);
+
+    @Test
+    void run_handsOutputsToNextStageAsObjects() throws ApeerEnvironmentException {
+        var values = new double[]{1, 2, 3};
+        var pipeline = new ApeerPipeline(systemMock, tempDir, 2)
+                .addStage("source", adk -> adk.setOutput("values", values), Map.of())
+                .addStage("sum", adk -> {
+                    var sum = 0.0;
+                    for (var value : adk.getDoubleArray("values")) {
+                        sum += value;
+                    }
+                    adk.setOutput("sum", sum * adk.getInput("factor", int.class));
+                }, Map.of("values", ApeerPipeline.output("source", "values"), "factor", 2));
+
+        var results = pipeline.run();
+
+        assertTrue(results.get("sum").isSucceeded());
+        assertSame(values, results.get("source").getOutputs().get("values"));
+        assertEquals(12.0, results.get("sum").getOutputs().get("sum"));
+        assertFalse(Files.exists(tempDir.resolve("sum/sum.json")));
+    }
+
+    @Test
+    void run_handsFileOutputsOverWithoutCopying() throws IOException, ApeerEnvironmentException {
+        var file = Files.writeString(tempDir.resolve("mask.bin"), "mask");
+        var pipeline = new ApeerPipeline(systemMock, tempDir.resolve("work"), 1)
+                .addStage("segment", adk -> adk.setFileOutput("mask", file.toString()), Map.of())
+                .addStage("measure", adk -> adk.setOutput("size", Files.size(Path.of(adk.getInput("mask", String.class)))),
+                        Map.of("mask", ApeerPipeline.output("segment", "mask")));
+
+        var results = pipeline.run();
+
+        assertEquals(file.toString(), results.get("segment").getOutputs().get("mask"));
+        assertEquals(4L, results.get("measure").getOutputs().get("size"));
+    }
+
+    @Test
+    void run_runsIndependentStagesAtTheSameTime() throws ApeerEnvironmentException {
+        var bothStarted = new CountDownLatch(2);
+        IApeerModule module = adk -> {
+            bothStarted.countDown();
+            adk.setOutput("overlapped", bothStarted.await(10, TimeUnit.SECONDS));
+        };
+        var pipeline = new ApeerPipeline(systemMock, tempDir, 2)
+                .addStage("a", module, Map.of())
+                .addStage("b", module, Map.of());
+
+        var results = pipeline.run();
+
+        assertEquals(true, results.get("a").getOutputs().get("overlapped"));
+        assertEquals(true, results.get("b").getOutputs().get("overlapped"));
+    }
+
+    @Test
+    void run_abortsAdkOfFailedStage() throws ApeerEnvironmentException {
+        var adks = new ArrayList<ApeerDevKit>();
+        var pipeline = new ApeerPipeline(systemMock, tempDir, 1)
+                .addStage("broken", adk -> {
+                    adks.add(adk);
+                    throw new IllegalStateException("broken");
+                }, Map.of());
+
+        pipeline.run();
+
+        assertTrue(adks.get(0).isFinalized());
+        assertThrows(ApeerOutputException.class, () -> adks.get(0).setOutput("late", true));
+    }
+
+    @Test
+    void run_skipsStagesAfterFailedStage() throws ApeerEnvironmentException {
+        var pipeline = new ApeerPipeline(systemMock, tempDir, 2)
+                .addStage("broken", adk -> {
+                    throw new IllegalStateException("broken");
+                }, Map.of())
+                .addStage("next", adk -> adk.setOutput("ran", true), Map.of("value", ApeerPipeline.output("broken", "value")))
+                .addStage("independent", adk -> adk.setOutput("ran", true), Map.of());
+
+        var results = pipeline.run();
+
+        assertEquals("broken", results.get("broken").getError());
+        assertFalse(results.get("next").isSucceeded());
+        assertTrue(results.get("independent").isSucceeded());
+    }
+
+    @Test
+    void addStage_rejectsUnknownStages() throws ApeerEnvironmentException {
+        var pipeline = new ApeerPipeline(systemMock, tempDir, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> pipeline.addStage("a", adk -> {
+        }, Map.of("value", ApeerPipeline.output("b", "value"))));
+    }
+}
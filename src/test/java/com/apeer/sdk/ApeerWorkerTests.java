@@ -0,0 +1,124 @@
+package com.apeer.sdk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ApeerWorkerTests {
+
+    @TempDir
+    Path tempDir;
+
+    private final ISystem systemMock = mock(ISystem.class);
+
+    private final IApeerModule doubler = adk -> adk.setOutput("doubled", adk.getInput("value", int.class) * 2);
+
+    @Test
+    void runJobLines_writesOutputsOfEachJobToItsOwnFolder() throws IOException, ApeerEnvironmentException {
+        var jobs = job("a", 1) + "\n\n" + job("b", 2) + "\n";
+        var results = new ByteArrayOutputStream();
+
+        var failed = new ApeerWorker(systemMock, doubler, 2).runJobLines(
+                new BufferedReader(new StringReader(jobs)), new PrintStream(results, true, StandardCharsets.UTF_8));
+
+        assertEquals(0, failed);
+        assertEquals("{\"doubled\":2}", Files.readString(tempDir.resolve("a/out.json")));
+        assertEquals("{\"doubled\":4}", Files.readString(tempDir.resolve("b/out.json")));
+        var resultText = results.toString(StandardCharsets.UTF_8);
+        assertTrue(resultText.contains("{\"id\":\"a\",\"status\":\"succeeded\""));
+        assertTrue(resultText.contains("{\"id\":\"b\",\"status\":\"succeeded\""));
+    }
+
+    @Test
+    void runJobLines_reportsFailedJobsAndContinues() throws IOException, ApeerEnvironmentException {
+        var jobs = "{\"id\":\"broken\",\"input\":{\"WFE_output_params_file\":\"out.json\"}}\n" + job("a", 1);
+        var results = new ByteArrayOutputStream();
+
+        var failed = new ApeerWorker(systemMock, doubler, 1).runJobLines(
+                new BufferedReader(new StringReader(jobs)), new PrintStream(results, true, StandardCharsets.UTF_8));
+
+        assertEquals(1, failed);
+        assertTrue(results.toString(StandardCharsets.UTF_8).contains("{\"id\":\"broken\",\"status\":\"failed\""));
+        assertTrue(Files.exists(tempDir.resolve("a/out.json")));
+    }
+
+    @Test
+    void runJob_doesNotFinalizeTwice() throws ApeerEnvironmentException {
+        var worker = new ApeerWorker(systemMock, adk -> {
+            adk.setOutput("done", true);
+            adk.finalizeModule();
+        }, 1);
+
+        assertTrue(worker.runJob(job("a", 1), "line-1").succeeded());
+    }
+
+    @Test
+    void runJob_reportsDefaultIdWhenDescriptorIsNotJson() throws ApeerEnvironmentException {
+        var worker = new ApeerWorker(systemMock, adk -> adk.setOutput("done", true), 1);
+
+        var result = worker.runJob("{\"id\":\"a\"", "line-1");
+
+        assertFalse(result.succeeded());
+        assertTrue(result.toJson().startsWith("{\"id\":\"line-1\",\"status\":\"failed\""));
+    }
+
+    @Test
+    void runJob_abortsAdkOfFailedModule() throws ApeerEnvironmentException {
+        var adks = new ArrayList<ApeerDevKit>();
+        var worker = new ApeerWorker(systemMock, adk -> {
+            adks.add(adk);
+            throw new IllegalStateException("broken");
+        }, 1);
+
+        assertFalse(worker.runJob(job("a", 1), "line-1").succeeded());
+        assertTrue(adks.get(0).isFinalized());
+        assertThrows(ApeerOutputException.class, () -> adks.get(0).setOutput("late", true));
+        assertFalse(Files.exists(tempDir.resolve("a/out.json")));
+    }
+
+    @Test
+    void runSpoolDirectory_runsJobsAndMarksThemDone() throws Exception {
+        var spool = Files.createDirectory(tempDir.resolve("spool"));
+        Files.writeString(spool.resolve("a.json"), job("a", 21));
+        var worker = new ApeerWorker(systemMock, doubler, 1);
+
+        var thread = new Thread(() -> {
+            try {
+                worker.runSpoolDirectory(spool);
+            } catch (IOException | InterruptedException ignored) {
+            }
+        });
+        thread.start();
+        try {
+            var done = spool.resolve("a.done");
+            var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (!Files.exists(done) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(Files.exists(done));
+        } finally {
+            thread.interrupt();
+            thread.join();
+        }
+
+        assertEquals("{\"doubled\":42}", Files.readString(tempDir.resolve("a/out.json")));
+    }
+
+    private String job(String id, int value) {
+        var outputDir = tempDir.resolve(id).toString().replace("\\", "\\\\");
+        return "{\"id\":\"" + id + "\",\"input\":{\"WFE_output_params_file\":\"out.json\",\"value\":" + value + "},\"outputDir\":\"" + outputDir + "\"}";
+    }
+}
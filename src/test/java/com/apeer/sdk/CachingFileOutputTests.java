@@ -0,0 +1,99 @@
+package com.apeer.sdk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingFileOutputTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void stageFile_linksIdenticalContentFromCache() throws IOException, ApeerOutputException {
+        var cache = createCache(1 << 20);
+        var first = Files.writeString(tempDir.resolve("first.bin"), "result");
+        var second = Files.writeString(tempDir.resolve("second.bin"), "result");
+
+        var firstStaged = cache.stageFile(first, tempDir.resolve("output1/result.bin"));
+        var secondStaged = cache.stageFile(second, tempDir.resolve("output2/result.bin"));
+
+        assertEquals(StagingStrategy.TRANSFER, firstStaged.getStrategy());
+        assertEquals(StagingStrategy.HARD_LINK, secondStaged.getStrategy());
+        assertEquals("result", Files.readString(tempDir.resolve("output2/result.bin")));
+        assertEquals(Files.getAttribute(tempDir.resolve("output1/result.bin"), "unix:ino"),
+                Files.getAttribute(tempDir.resolve("output2/result.bin"), "unix:ino"));
+        assertEquals(firstStaged.getDigest(), secondStaged.getDigest());
+        assertNotNull(firstStaged.getDigest());
+    }
+
+    @Test
+    void stageFile_stagesDifferentContentAgain() throws IOException, ApeerOutputException {
+        var cache = createCache(1 << 20);
+        var first = Files.writeString(tempDir.resolve("first.bin"), "result");
+        var second = Files.writeString(tempDir.resolve("second.bin"), "other");
+
+        cache.stageFile(first, tempDir.resolve("output1/result.bin"));
+        var secondStaged = cache.stageFile(second, tempDir.resolve("output2/result.bin"));
+
+        assertEquals(StagingStrategy.TRANSFER, secondStaged.getStrategy());
+        assertEquals("other", Files.readString(tempDir.resolve("output2/result.bin")));
+    }
+
+    @Test
+    void stageFile_evictsLeastRecentlyUsedFilesWhenCacheIsFull() throws IOException, ApeerOutputException {
+        var cache = createCache(10);
+        var a = Files.writeString(tempDir.resolve("a.bin"), "aaaaa");
+        var b = Files.writeString(tempDir.resolve("b.bin"), "bbbbb");
+        var c = Files.writeString(tempDir.resolve("c.bin"), "ccccc");
+
+        cache.stageFile(a, tempDir.resolve("output1/a.bin"));
+        cache.stageFile(b, tempDir.resolve("output1/b.bin"));
+        assertEquals(StagingStrategy.HARD_LINK, cache.stageFile(a, tempDir.resolve("output2/a.bin")).getStrategy());
+        cache.stageFile(c, tempDir.resolve("output1/c.bin"));
+
+        assertEquals(StagingStrategy.HARD_LINK, cache.stageFile(a, tempDir.resolve("output3/a.bin")).getStrategy());
+        assertEquals(StagingStrategy.TRANSFER, cache.stageFile(b, tempDir.resolve("output3/b.bin")).getStrategy());
+        assertTrue(cachedBytes() <= 10);
+    }
+
+    @Test
+    void stageFile_reusesCacheOfEarlierProcesses() throws IOException, ApeerOutputException {
+        var source = Files.writeString(tempDir.resolve("result.bin"), "result");
+        createCache(1 << 20).stageFile(source, tempDir.resolve("output1/result.bin"));
+
+        var staged = createCache(1 << 20).stageFile(source, tempDir.resolve("output2/result.bin"));
+
+        assertEquals(StagingStrategy.HARD_LINK, staged.getStrategy());
+    }
+
+    @Test
+    void stageFile_doesNotCacheHardLinkedFiles() throws IOException, ApeerOutputException {
+        var cache = new CachingFileOutput(new OutputJsonFileWriter(StagingStrategy.HARD_LINK), tempDir.resolve("cache"), 1 << 20, "SHA-256", true);
+        var source = Files.writeString(tempDir.resolve("result.bin"), "result");
+
+        cache.stageFile(source, tempDir.resolve("output1/result.bin"));
+        // rewriting the module's file in place changes the hard linked output but must not change the cache
+        Files.writeString(source, "poison");
+        var other = Files.writeString(tempDir.resolve("other.bin"), "result");
+        var staged = cache.stageFile(other, tempDir.resolve("output2/result.bin"));
+
+        assertFalse(Files.exists(tempDir.resolve("cache")));
+        assertEquals("result", Files.readString(staged.getTargetPath()));
+    }
+
+    private CachingFileOutput createCache(long maxBytes) {
+        return new CachingFileOutput(new OutputJsonFileWriter(StagingStrategy.TRANSFER), tempDir.resolve("cache"), maxBytes, "SHA-256", true);
+    }
+
+    private long cachedBytes() throws IOException {
+        try (var files = Files.walk(tempDir.resolve("cache"))) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.apeer.sdk;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedFileReaderTests {
+
+    @TempDir
+    Path tempDir;
+
+    private ExecutorService ioExecutor;
+    private ForkJoinPool computePool;
+
+    @BeforeEach
+    void beforeEach() {
+        ioExecutor = Executors.newFixedThreadPool(4);
+        computePool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    void afterEach() {
+        ioExecutor.shutdown();
+        computePool.shutdown();
+    }
+
+    @Test
+    void readsFileWhenCalledFromEveryIoThread() throws Exception {
+        var file = Files.write(tempDir.resolve("image.bin"), new byte[10_000]);
+        var reader = new ChunkedFileReader(new DirectBufferPool(1024, 8), ioExecutor, computePool, 4);
+        var allRunning = new CountDownLatch(4);
+        var futures = new ArrayList<Future<Long>>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(ioExecutor.submit(() -> {
+                // every thread of the I/O executor reads, so the reader tasks queued on it cannot run
+                allRunning.countDown();
+                allRunning.await();
+                return reader.read(file, (offset, chunk) -> {
+                });
+            }));
+        }
+
+        for (var future : futures) {
+            assertEquals(10_000L, future.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void passesEveryByteOnceWithBoundedBuffers() throws IOException, ApeerInputException {
+        var content = new byte[10_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        var file = Files.write(tempDir.resolve("image.bin"), content);
+        var buffers = new DirectBufferPool(1024, 3);
+        var received = new byte[content.length];
+        var chunks = new AtomicInteger();
+
+        var size = new ChunkedFileReader(buffers, ioExecutor, computePool, 8).read(file, (offset, chunk) -> {
+            assertEquals(0, offset % 1024);
+            chunk.get(received, (int) offset, chunk.remaining());
+            chunks.incrementAndGet();
+        });
+
+        assertEquals(content.length, size);
+        assertArrayEquals(content, received);
+        assertEquals(10, chunks.get());
+        assertTrue(buffers.getAllocated() <= 3);
+    }
+
+    @Test
+    void stopsAtFirstFailureOfConsumer() throws IOException, InterruptedException {
+        var file = Files.write(tempDir.resolve("image.bin"), new byte[100_000]);
+        var buffers = new DirectBufferPool(1024, 2);
+        var chunks = new AtomicInteger();
+        var reader = new ChunkedFileReader(buffers, ioExecutor, computePool, 2);
+
+        var ex = assertThrows(ApeerInputException.class, () -> reader.read(file, (offset, chunk) -> {
+            chunks.incrementAndGet();
+            throw new IllegalStateException("broken chunk at " + offset);
+        }));
+
+        assertTrue(ex.getMessage().contains("broken chunk at "));
+        assertTrue(chunks.get() < 98);
+        // all buffers are back in the pool
+        assertNotNull(buffers.take());
+        assertNotNull(buffers.take());
+    }
+
+    @Test
+    void readsEmptyFileWithoutChunks() throws IOException, ApeerInputException {
+        var file = Files.write(tempDir.resolve("empty.bin"), new byte[0]);
+        var reader = new ChunkedFileReader(new DirectBufferPool(1024, 1), ioExecutor, computePool, 1);
+
+        assertEquals(0, reader.read(file, (offset, chunk) -> fail("no chunk expected")));
+    }
+}
@@ -0,0 +1,85 @@
+package com.apeer.sdk;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsoleLoggerTests {
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    @Test
+    void log_writesMessagesOfEnabledLevels() {
+        var logger = new ConsoleLogger(LogLevel.INFO, 100, new ConsoleLogWriter(new PrintStream(output, true, StandardCharsets.UTF_8), 16));
+
+        logger.log(LogLevel.DEBUG, () -> "hidden");
+        logger.log(LogLevel.INFO, () -> "shown");
+        logger.log(LogLevel.ERROR, () -> "failed");
+        logger.flush();
+
+        assertEquals("[ADK] INFO shown" + System.lineSeparator() + "[ADK] ERROR failed" + System.lineSeparator(), text());
+    }
+
+    @Test
+    void log_doesNotBuildMessagesOfDisabledLevels() {
+        var logger = new ConsoleLogger(LogLevel.WARN, 100, new ConsoleLogWriter(new PrintStream(output, true, StandardCharsets.UTF_8), 16));
+
+        logger.log(LogLevel.INFO, () -> fail("message must not be built"));
+        logger.flush();
+
+        assertFalse(logger.isEnabled(LogLevel.INFO));
+        assertEquals("", text());
+    }
+
+    @Test
+    void log_truncatesLongMessages() {
+        var logger = new ConsoleLogger(LogLevel.INFO, 5, new ConsoleLogWriter(new PrintStream(output, true, StandardCharsets.UTF_8), 16));
+
+        logger.log(LogLevel.INFO, () -> "abcdefghij");
+        logger.flush();
+
+        assertEquals("[ADK] INFO abcde... (5 more characters)" + System.lineSeparator(), text());
+    }
+
+    @Test
+    void log_dropsMessagesWhenBufferIsFullInsteadOfBlocking() throws InterruptedException {
+        var writing = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var blockingStream = new OutputStream() {
+            @Override
+            public void write(int b) {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                output.write(b);
+            }
+        };
+        var writer = new ConsoleLogWriter(new PrintStream(blockingStream, true, StandardCharsets.UTF_8), 2);
+        var logger = new ConsoleLogger(LogLevel.INFO, 100, writer);
+
+        logger.log(LogLevel.INFO, () -> "first");
+        writing.await();
+        logger.log(LogLevel.INFO, () -> "second");
+        logger.log(LogLevel.INFO, () -> "third");
+        assertFalse(writer.offer("dropped"));
+        release.countDown();
+        logger.flush();
+
+        assertTrue(text().contains("1 log messages were dropped"));
+        assertTrue(text().contains("[ADK] INFO third"));
+        assertFalse(text().contains("dropped" + System.lineSeparator()));
+    }
+
+    private String text() {
+        return output.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,60 @@
+package com.apeer.sdk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContainerResourcesTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readsLimitsOfCgroupV2() throws IOException {
+        Files.writeString(tempDir.resolve("cpu.max"), "150000 100000\n");
+        Files.writeString(tempDir.resolve("memory.max"), "536870912\n");
+
+        var resources = ContainerResources.read(tempDir, 16);
+
+        assertEquals(2, resources.getCpus());
+        assertEquals(512L << 20, resources.getMemoryLimit());
+        assertEquals(4, resources.getIoParallelism());
+        assertEquals(4, resources.getChunkBuffers(4 << 20));
+        assertEquals(2, resources.getChunkBuffers(32 << 20));
+        assertEquals(1, resources.getChunkBuffers(1 << 30));
+    }
+
+    @Test
+    void readsLimitsOfCgroupV1() throws IOException {
+        var cpu = Files.createDirectories(tempDir.resolve("cpu,cpuacct"));
+        Files.writeString(cpu.resolve("cpu.cfs_quota_us"), "400000\n");
+        Files.writeString(cpu.resolve("cpu.cfs_period_us"), "100000\n");
+        var memory = Files.createDirectories(tempDir.resolve("memory"));
+        Files.writeString(memory.resolve("memory.limit_in_bytes"), "9223372036854771712\n");
+
+        var resources = ContainerResources.read(tempDir, 16);
+
+        assertEquals(4, resources.getCpus());
+        assertEquals(-1, resources.getMemoryLimit());
+        assertEquals(8, resources.getIoParallelism());
+    }
+
+    @Test
+    void usesAvailableProcessorsWithoutLimits() throws IOException {
+        Files.writeString(tempDir.resolve("cpu.max"), "max 100000\n");
+        Files.writeString(tempDir.resolve("memory.max"), "max\n");
+
+        var resources = ContainerResources.read(tempDir, 48);
+
+        assertEquals(48, resources.getCpus());
+        assertEquals(-1, resources.getMemoryLimit());
+        assertEquals(64, resources.getIoParallelism());
+        assertEquals(96, resources.getChunkBuffers(1 << 30));
+        assertEquals(1, ContainerResources.read(tempDir.resolve("missing"), 1).getCpus());
+    }
+}
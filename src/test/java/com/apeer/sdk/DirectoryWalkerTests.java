@@ -0,0 +1,62 @@
+package com.apeer.sdk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirectoryWalkerTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void listsAllFilesOfTreeSorted() throws IOException, ApeerOutputException {
+        createFiles("b/2.png", "a/1.png", "a/deep/3.png", "top.txt");
+        Files.createDirectories(tempDir.resolve("empty"));
+        var executor = Executors.newFixedThreadPool(3);
+        try {
+            var files = new DirectoryWalker(null, null, executor, new Semaphore(1)).walk(tempDir);
+
+            assertEquals(List.of(Path.of("a/1.png"), Path.of("a/deep/3.png"), Path.of("b/2.png"), Path.of("top.txt")), files);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void appliesIncludeAndExcludeGlobs() throws IOException, ApeerOutputException {
+        createFiles("level_0/0_0.png", "level_0/0_0.json", "level_1/0_0.png", "tmp/scratch.png", "preview.png");
+        var executor = Executors.newFixedThreadPool(2);
+        try {
+            var files = new DirectoryWalker(new String[]{"**.png"}, new String[]{"tmp", "level_1/**"}, executor, new Semaphore(4)).walk(tempDir);
+
+            assertEquals(List.of(Path.of("level_0/0_0.png"), Path.of("preview.png")), files);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void cannotWalkFile() throws IOException {
+        createFiles("file.png");
+        var walker = new DirectoryWalker(null, null, Runnable::run, new Semaphore(1));
+
+        assertThrows(ApeerOutputException.class, () -> walker.walk(tempDir.resolve("file.png")));
+    }
+
+    private void createFiles(String... paths) throws IOException {
+        for (var path : paths) {
+            var file = tempDir.resolve(path);
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, path);
+        }
+    }
+}
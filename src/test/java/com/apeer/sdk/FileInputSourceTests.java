@@ -0,0 +1,44 @@
+package com.apeer.sdk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileInputSourceTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void read_readsSmallFilesAsString() throws IOException, ApeerEnvironmentException {
+        var file = Files.writeString(tempDir.resolve("input.json"), "{\"a\":1}");
+
+        var text = new FileInputSource(file).read();
+
+        assertEquals("{\"a\":1}", text.toString());
+    }
+
+    @Test
+    void read_mapsLargeFilesAndDecodesUtf8() throws IOException, ApeerEnvironmentException {
+        var file = Files.writeString(tempDir.resolve("input.json"), "{\"schlüssel\":\"größe\",\"numbers\":[1.5,2]}");
+
+        var text = new FileInputSource(file, 0).read();
+        var input = LazyJsonInput.index(text);
+
+        assertTrue(text instanceof MappedJsonText);
+        assertEquals("größe", input.getString("schlüssel"));
+        assertArrayEquals(new double[]{1.5, 2}, input.getDoubleArray("numbers"), 0.0);
+    }
+
+    @Test
+    void read_throwsExceptionWhenFileIsMissing() {
+        assertThrows(
+                ApeerEnvironmentException.class,
+                () -> new FileInputSource(tempDir.resolve("missing.json")).read());
+    }
+}
@@ -0,0 +1,105 @@
+package com.apeer.sdk;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InputBinderTests {
+    private static final String SPECIFICATION = "{\"spec\":{\"inputs\":{"
+            + "\"input_image\":{\"type:file\":{}},"
+            + "\"threshold\":{\"type:integer\":{\"min\":0},\"default\":128},"
+            + "\"sigma\":{\"type:number\":{}},"
+            + "\"invert\":{\"type:choice_binary\":{},\"default\":false},"
+            + "\"labels\":{\"type:list[string]\":{}},"
+            + "\"weights\":{\"type:list[number]\":{},\"default\":[1,2]},"
+            + "\"comment\":{\"type:string\":{}}"
+            + "},\"outputs\":{}}}";
+
+    static class Inputs {
+        private Path inputImage;
+        private int threshold;
+        private Double sigma;
+        private boolean invert;
+        private String[] labels;
+        private double[] weights;
+    }
+
+    static class WrongType {
+        private String threshold;
+    }
+
+    static class UnknownInput {
+        private int radius;
+    }
+
+    @Test
+    void bind_assignsAllFields() throws ApeerException {
+        var binder = InputBinder.fromSpecification(Inputs.class, SPECIFICATION);
+
+        var inputs = binder.bind(LazyJsonInput.index("{\"input_image\":\"/input/a.tif\",\"threshold\":5,\"sigma\":1.5,\"invert\":true,"
+                + "\"labels\":[\"cell\",\"nucleus\"],\"weights\":[0.5],\"comment\":\"\"}"));
+
+        assertEquals(Path.of("/input/a.tif"), inputs.inputImage);
+        assertEquals(5, inputs.threshold);
+        assertEquals(1.5, inputs.sigma);
+        assertTrue(inputs.invert);
+        assertArrayEquals(new String[]{"cell", "nucleus"}, inputs.labels);
+        assertArrayEquals(new double[]{0.5}, inputs.weights);
+    }
+
+    @Test
+    void bind_usesDefaultValuesOfMissingInputs() throws ApeerException {
+        var binder = InputBinder.fromSpecification(Inputs.class, SPECIFICATION);
+
+        var inputs = binder.bind(LazyJsonInput.index("{\"input_image\":\"a.tif\",\"sigma\":2,\"labels\":[],\"comment\":\"x\"}"));
+
+        assertEquals(128, inputs.threshold);
+        assertFalse(inputs.invert);
+        assertArrayEquals(new double[]{1, 2}, inputs.weights);
+    }
+
+    @Test
+    void bind_reportsAllInvalidInputsAtOnce() throws ApeerEnvironmentException {
+        var binder = InputBinder.fromSpecification(Inputs.class, SPECIFICATION);
+
+        var ex = assertThrows(ApeerInputException.class, () -> binder.bind(LazyJsonInput.index(
+                "{\"input_image\":3,\"threshold\":1.5,\"sigma\":1,\"labels\":[1],\"comment\":\"x\"}")));
+
+        assertEquals("[ADK] Inputs do not match the module specification: \"input_image\" is not of type \"file\", \"labels\" is not of type"
+                + " \"list[string]\", \"threshold\" is not of type \"integer\"", ex.getMessage());
+    }
+
+    @Test
+    void bind_validatesInputsWithoutField() throws ApeerEnvironmentException {
+        var binder = InputBinder.fromSpecification(Inputs.class, SPECIFICATION);
+
+        var ex = assertThrows(ApeerInputException.class, () -> binder.bind(LazyJsonInput.index(
+                "{\"input_image\":\"a.tif\",\"sigma\":1,\"labels\":[]}")));
+
+        assertEquals("[ADK] Inputs do not match the module specification: \"comment\" is missing", ex.getMessage());
+    }
+
+    @Test
+    void bind_checksTypeOfInputsWithoutFieldWithoutDecodingThem() throws ApeerException {
+        var binder = InputBinder.fromSpecification(Inputs.class, SPECIFICATION);
+        var inputs = "{\"input_image\":\"a.tif\",\"sigma\":1,\"labels\":[],\"comment\":%s}";
+
+        // the escape sequence is only rejected when the string is decoded
+        assertNotNull(binder.bind(LazyJsonInput.index(String.format(inputs, "\"\\u00zz\""))));
+        var ex = assertThrows(ApeerInputException.class, () -> binder.bind(LazyJsonInput.index(String.format(inputs, "[\"x\"]"))));
+
+        assertEquals("[ADK] Inputs do not match the module specification: \"comment\" is not of type \"string\"", ex.getMessage());
+    }
+
+    @Test
+    void fromSpecification_rejectsMismatchesBeforeBinding() {
+        assertThrows(ApeerEnvironmentException.class, () -> InputBinder.fromSpecification(WrongType.class, SPECIFICATION));
+        assertThrows(ApeerEnvironmentException.class, () -> InputBinder.fromSpecification(UnknownInput.class, SPECIFICATION));
+        assertThrows(ApeerEnvironmentException.class, () -> InputBinder.fromSpecification(Inputs.class,
+                "{\"spec\":{\"inputs\":{\"image\":{\"type:tensor\":{}}}}}"));
+        assertThrows(ApeerEnvironmentException.class, () -> InputBinder.fromSpecification(Inputs.class,
+                SPECIFICATION.replace("\"default\":128", "\"default\":\"high\"")));
+    }
+}
@@ -0,0 +1,77 @@
+package com.apeer.sdk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class InputPrefetcherTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readsFilesUntilMaxBytes() throws IOException, InterruptedException {
+        var files = new LinkedHashMap<String, List<Path>>();
+        files.put("first", List.of(createFile("first.bin", 1000)));
+        files.put("second", List.of(createFile("second.bin", 1000)));
+        var prefetcher = new InputPrefetcher(files, 1500, mock(ILogger.class));
+        var metrics = mock(IMetricsSink.class);
+
+        prefetcher.start();
+        assertTrue(prefetcher.await(10, TimeUnit.SECONDS));
+        prefetcher.report(metrics);
+
+        verify(metrics).record(eq("input.prefetch"), eq("first"), anyLong(), eq(1000L));
+        verify(metrics).record(eq("input.prefetch"), eq("second"), anyLong(), eq(500L));
+    }
+
+    @Test
+    void reportsHitsAndMisses() throws IOException, InterruptedException {
+        var files = new LinkedHashMap<String, List<Path>>();
+        files.put("complete", List.of(createFile("complete.bin", 100)));
+        files.put("partial", List.of(createFile("partial.bin", 1000)));
+        files.put("unused", List.of(createFile("unused.bin", 10)));
+        var logger = mock(ILogger.class);
+        when(logger.isEnabled(any())).thenReturn(true);
+        var prefetcher = new InputPrefetcher(files, 200, logger);
+
+        prefetcher.start();
+        assertTrue(prefetcher.await(10, TimeUnit.SECONDS));
+        prefetcher.recordAccess("complete");
+        prefetcher.recordAccess("partial");
+        prefetcher.recordAccess("unknown");
+        prefetcher.report(mock(IMetricsSink.class));
+
+        verify(logger).log(eq(LogLevel.INFO), argThat(message -> message.get().equals(
+                "Prefetched 200 bytes of 3 inputs: 1 hits, 1 misses, 1 not read by the module")));
+    }
+
+    @Test
+    void readsNothingWhenCancelled() throws IOException, InterruptedException {
+        var prefetcher = new InputPrefetcher(Map.of("image", List.of(createFile("image.bin", 1000))), 1 << 20, mock(ILogger.class));
+        var metrics = mock(IMetricsSink.class);
+
+        prefetcher.cancel();
+        prefetcher.start();
+        assertTrue(prefetcher.await(10, TimeUnit.SECONDS));
+        prefetcher.recordAccess("image");
+        prefetcher.report(metrics);
+
+        verify(metrics).record(eq("input.prefetch"), eq("image"), anyLong(), eq(0L));
+    }
+
+    private Path createFile(String name, int size) throws IOException {
+        return Files.write(tempDir.resolve(name), new byte[size]);
+    }
+}
@@ -0,0 +1,82 @@
+package com.apeer.sdk;
+
+import org.json.JSONException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LazyJsonInputTests {
+
+    @Test
+    void index_findsTopLevelMembers() {
+        var input = LazyJsonInput.index(" { \"a\" : 1 , \"b\":\"x\",\"c\":[1,{\"d\":\"]}\"}],\"e\":{\"f\":[]} } ");
+
+        assertTrue(input.has("a"));
+        assertTrue(input.has("b"));
+        assertTrue(input.has("c"));
+        assertTrue(input.has("e"));
+        assertFalse(input.has("d"));
+        assertFalse(input.has("f"));
+        assertEquals(1, input.getInt("a"));
+        assertEquals("x", input.getString("b"));
+        assertEquals("]}", input.getJSONArray("c").getJSONObject(1).getString("d"));
+    }
+
+    @Test
+    void index_decodesEscapedKeys() {
+        var input = LazyJsonInput.index("{\"quote\\\"key\\u00e4\":true}");
+
+        assertTrue(input.getBoolean("quote\"keyä"));
+    }
+
+    @Test
+    void index_throwsExceptionWhenTextIsNotAnObject() {
+        assertThrows(JSONException.class, () -> LazyJsonInput.index("{{"));
+        assertThrows(JSONException.class, () -> LazyJsonInput.index("[1]"));
+        assertThrows(JSONException.class, () -> LazyJsonInput.index("{\"a\":[1,2}"));
+        assertThrows(JSONException.class, () -> LazyJsonInput.index("{\"a\":1 \"b\":2}"));
+        assertThrows(JSONException.class, () -> LazyJsonInput.index("{\"a\":1,\"a\":2}"));
+    }
+
+    @Test
+    void index_acceptsRelaxedSyntaxLikeJsonObject() {
+        var input = LazyJsonInput.index("{plain key:two words;'quoted':'x,y',1.50:[1,2,],\"last\":true,}");
+
+        assertEquals("two words", input.getString("plain key"));
+        assertEquals("x,y", input.getString("quoted"));
+        assertTrue(input.holdsStrings("quoted"));
+        assertArrayEquals(new int[]{1, 2}, input.getIntArray("1.5"));
+        assertEquals(2, input.getJSONArray("1.5").length());
+        assertTrue(input.getBoolean("last"));
+    }
+
+    @Test
+    void index_throwsExceptionForTextAfterTheObject() {
+        assertEquals(1, LazyJsonInput.index("{\"a\":1} \n").getInt("a"));
+        assertThrows(JSONException.class, () -> LazyJsonInput.index("{\"a\":1} junk"));
+        assertThrows(JSONException.class, () -> LazyJsonInput.index("{\"a\":1}{\"b\":2}"));
+    }
+
+    @Test
+    void get_decodesInvalidValuesOnlyWhenAccessed() {
+        var input = LazyJsonInput.index("{\"valid\":42,\"invalid\":{\"x\" 1}}");
+
+        assertEquals(42, input.getInt("valid"));
+        assertThrows(JSONException.class, () -> input.get("invalid"));
+    }
+
+    @Test
+    void get_cachesDecodedValues() {
+        var input = LazyJsonInput.index("{\"numbers\":[1,2,3]}");
+
+        assertSame(input.get("numbers"), input.get("numbers"));
+    }
+
+    @Test
+    void getString_throwsExceptionWhenValueIsNotAString() {
+        var input = LazyJsonInput.index("{\"number\":42}");
+
+        assertThrows(JSONException.class, () -> input.getString("number"));
+        assertThrows(JSONException.class, () -> input.getString("missing"));
+    }
+}
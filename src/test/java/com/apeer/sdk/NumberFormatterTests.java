@@ -0,0 +1,91 @@
+package com.apeer.sdk;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NumberFormatterTests {
+
+    private final char[] buffer = new char[NumberFormatter.BUFFER_SIZE];
+
+    @Test
+    void formatLong_formatsWholeRange() {
+        assertEquals("0", formatLong(0));
+        assertEquals("-42", formatLong(-42));
+        assertEquals("9223372036854775807", formatLong(Long.MAX_VALUE));
+        assertEquals("-9223372036854775808", formatLong(Long.MIN_VALUE));
+    }
+
+    @Test
+    void formatDouble_formatsLikeOrgJson() {
+        assertEquals("42", formatDouble(42.0));
+        assertEquals("47.11", formatDouble(47.11));
+        assertEquals("-1.0E-6", formatDouble(-1e-6));
+        assertEquals("0.001", formatDouble(0.001));
+        assertEquals("1.0E7", formatDouble(1e7));
+        assertEquals("1234567", formatDouble(1234567.0));
+        assertEquals("1.2345678E7", formatDouble(12345678.0));
+        assertEquals("0.1", formatDouble(0.1));
+        assertEquals("0", formatDouble(0.0));
+        assertEquals("-0", formatDouble(-0.0));
+        assertEquals("1.0E21", formatDouble(1e21));
+        assertEquals("4.9E-324", formatDouble(Double.MIN_VALUE));
+        assertEquals("1.7976931348623157E308", formatDouble(Double.MAX_VALUE));
+    }
+
+    @Test
+    void formatDouble_roundTripsRandomValues() {
+        var random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            var value = i % 2 == 0
+                    ? Double.longBitsToDouble(random.nextLong())
+                    : Math.round(random.nextGaussian() * 1e6) / 1e3;
+            if (!Double.isFinite(value)) {
+                continue;
+            }
+            var formatted = formatDouble(value);
+            assertEquals(value, Double.parseDouble(formatted), 0.0, formatted);
+            assertTrue(formatted.length() <= Double.toString(value).length(), formatted);
+        }
+    }
+
+    @Test
+    void formatFloat_roundTripsRandomValues() {
+        var random = new Random(42);
+        assertEquals("0.1", formatFloat(0.1f));
+        for (int i = 0; i < 100_000; i++) {
+            var value = i % 2 == 0
+                    ? Float.intBitsToFloat(random.nextInt())
+                    : Math.round(random.nextGaussian() * 1e4) / 1e2f;
+            if (!Float.isFinite(value)) {
+                continue;
+            }
+            var formatted = formatFloat(value);
+            assertEquals(value, Float.parseFloat(formatted), 0.0f, formatted);
+        }
+    }
+
+    @Test
+    void formatDouble_rejectsNonFiniteValues() {
+        assertThrows(IllegalArgumentException.class, () -> formatDouble(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> formatDouble(Double.POSITIVE_INFINITY));
+        assertThrows(IllegalArgumentException.class, () -> formatDouble(Double.NEGATIVE_INFINITY));
+        assertThrows(IllegalArgumentException.class, () -> formatFloat(Float.NaN));
+        assertThrows(IllegalArgumentException.class, () -> formatFloat(Float.POSITIVE_INFINITY));
+        assertThrows(IllegalArgumentException.class, () -> formatFloat(Float.NEGATIVE_INFINITY));
+    }
+
+    private String formatLong(long value) {
+        return new String(buffer, 0, NumberFormatter.formatLong(value, buffer));
+    }
+
+    private String formatDouble(double value) {
+        return new String(buffer, 0, NumberFormatter.formatDouble(value, buffer));
+    }
+
+    private String formatFloat(float value) {
+        return new String(buffer, 0, NumberFormatter.formatFloat(value, buffer));
+    }
+}
@@ -0,0 +1,195 @@
+package com.apeer.sdk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class OutputJsonFileWriterTests {
+
+    @TempDir
+    Path tempDir;
+
+    /*
+     * staging strategies
+     */
+
+    @Test
+    void stageFile_hardLinksFileOnSameFilesystem() throws IOException, ApeerOutputException {
+        var source = Files.writeString(tempDir.resolve("image.tiff"), "pixels");
+        var target = tempDir.resolve("output/image.tiff");
+
+        var staged = new OutputJsonFileWriter(StagingStrategy.HARD_LINK, StagingStrategy.TRANSFER).stageFile(source, target);
+
+        assertEquals(StagingStrategy.HARD_LINK, staged.getStrategy());
+        assertEquals(6, staged.getSize());
+        assertEquals("pixels", Files.readString(target));
+        assertTrue(Files.exists(source));
+    }
+
+    @Test
+    void stageFile_copiesFileByDefault() throws IOException, ApeerOutputException {
+        var source = Files.writeString(tempDir.resolve("image.tiff"), "pixels");
+        var target = tempDir.resolve("output/image.tiff");
+
+        var staged = new OutputJsonFileWriter().stageFile(source, target);
+        Files.writeString(source, "changed");
+
+        assertEquals(StagingStrategy.TRANSFER, staged.getStrategy());
+        assertEquals("pixels", Files.readString(target));
+    }
+
+    @Test
+    void stageFile_transfersFileWhenOnlyCopyIsAllowed() throws IOException, ApeerOutputException {
+        var source = Files.writeString(tempDir.resolve("image.tiff"), "pixels");
+        var target = tempDir.resolve("output/nested/image.tiff");
+
+        var staged = new OutputJsonFileWriter(StagingStrategy.TRANSFER).stageFile(source, target);
+
+        assertEquals(StagingStrategy.TRANSFER, staged.getStrategy());
+        assertEquals("pixels", Files.readString(target));
+        assertNotEquals(Files.getAttribute(source, "unix:ino"), Files.getAttribute(target, "unix:ino"));
+    }
+
+    @Test
+    void stageFile_computesDigestWhileCopying() throws IOException, ApeerOutputException {
+        var content = "pixels".repeat(100_000);
+        var source = Files.writeString(tempDir.resolve("image.tiff"), content);
+        var target = tempDir.resolve("output/image.tiff");
+
+        var staged = new OutputJsonFileWriter(FsyncPolicy.NONE, "SHA-256", StagingStrategy.TRANSFER).stageFile(source, target);
+
+        assertEquals(sha256(content), staged.getDigest());
+        assertEquals(content, Files.readString(target));
+    }
+
+    @Test
+    void stageFile_computesDigestOfHardLinkedFile() throws IOException, ApeerOutputException {
+        var source = Files.writeString(tempDir.resolve("image.tiff"), "pixels");
+        var target = tempDir.resolve("output/image.tiff");
+
+        var staged = new OutputJsonFileWriter(FsyncPolicy.NONE, "SHA-256", StagingStrategy.HARD_LINK).stageFile(source, target);
+
+        assertEquals(sha256("pixels"), staged.getDigest());
+        assertNull(new OutputJsonFileWriter().stageFile(source, tempDir.resolve("output/other.tiff")).getDigest());
+    }
+
+    @Test
+    void ctor_throwsExceptionForUnknownDigestAlgorithm() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new OutputJsonFileWriter(FsyncPolicy.NONE, "NO-SUCH-HASH", StagingStrategy.TRANSFER));
+    }
+
+    @Test
+    void stageFile_renamesFileWhenMoveIsAllowed() throws IOException, ApeerOutputException {
+        var source = Files.writeString(tempDir.resolve("image.tiff"), "pixels");
+        var target = tempDir.resolve("output/image.tiff");
+
+        var staged = new OutputJsonFileWriter(StagingStrategy.MOVE, StagingStrategy.TRANSFER).stageFile(source, target);
+
+        assertEquals(StagingStrategy.MOVE, staged.getStrategy());
+        assertEquals("pixels", Files.readString(target));
+        assertFalse(Files.exists(source));
+    }
+
+    @Test
+    void stageFile_throwsExceptionWhenTargetExists() throws IOException {
+        var source = Files.writeString(tempDir.resolve("image.tiff"), "pixels");
+        var target = Files.writeString(tempDir.resolve("existing.tiff"), "other");
+
+        assertThrows(
+                ApeerOutputException.class,
+                () -> new OutputJsonFileWriter().stageFile(source, target));
+        assertEquals("other", Files.readString(target));
+    }
+
+    @Test
+    void stageFile_doesNotRenameOverExistingTarget() throws IOException {
+        var source = Files.writeString(tempDir.resolve("image.tiff"), "pixels");
+        var target = Files.writeString(tempDir.resolve("existing.tiff"), "other");
+
+        assertThrows(
+                ApeerOutputException.class,
+                () -> new OutputJsonFileWriter(StagingStrategy.MOVE, StagingStrategy.TRANSFER).stageFile(source, target));
+        assertEquals("other", Files.readString(target));
+        assertEquals("pixels", Files.readString(source));
+    }
+
+    /*
+     * output params
+     */
+
+    @Test
+    void writeJsonToFile_replacesFileAtomically() throws IOException, ApeerOutputException {
+        var target = Files.writeString(tempDir.resolve("out.json"), "{\"old\":true}");
+
+        new OutputJsonFileWriter(FsyncPolicy.FILE_AND_FOLDER, StagingStrategy.TRANSFER)
+                .writeJsonToFile(target.toString(), writer -> writer.write("{\"größe\":1}"));
+
+        assertEquals("{\"größe\":1}", Files.readString(target, StandardCharsets.UTF_8));
+        try (var files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void writeJsonToFile_createsFileWithDefaultPermissions() throws IOException, ApeerOutputException {
+        assumeTrue(tempDir.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        var defaultPermissions = Files.getPosixFilePermissions(Files.createFile(tempDir.resolve("default.json")));
+
+        new OutputJsonFileWriter().writeJsonToFile(tempDir.resolve("out.json").toString(), writer -> writer.write("{}"));
+
+        assertEquals(defaultPermissions, Files.getPosixFilePermissions(tempDir.resolve("out.json")));
+    }
+
+    @Test
+    void writeJsonToFile_keepsExistingFileWhenWritingFails() throws IOException {
+        var target = Files.writeString(tempDir.resolve("out.json"), "{\"old\":true}");
+
+        var ex = assertThrows(
+                ApeerOutputException.class,
+                () -> new OutputJsonFileWriter().writeJsonToFile(target.toString(), writer -> {
+                    writer.write("{\"new\":");
+                    throw new IOException("encoding failed");
+                }));
+
+        assertFalse(ex.getMessage().contains("new"));
+        assertEquals("{\"old\":true}", Files.readString(target));
+        try (var files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    /*
+     * streamed files
+     */
+
+    @Test
+    void openFile_createsFileAndFolders() throws IOException, ApeerOutputException {
+        var target = tempDir.resolve("output/nested/image.raw");
+
+        try (var channel = new OutputJsonFileWriter().openFile(target)) {
+            channel.write(ByteBuffer.wrap("pixels".getBytes(StandardCharsets.US_ASCII)));
+        }
+
+        assertEquals("pixels", Files.readString(target));
+    }
+
+    private static String sha256(String content) {
+        try {
+            return Digests.toHex(MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
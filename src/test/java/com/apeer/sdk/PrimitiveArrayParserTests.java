@@ -0,0 +1,95 @@
+package com.apeer.sdk;
+
+import org.json.JSONException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrimitiveArrayParserTests {
+
+    @Test
+    void parseIntArray_parsesIntegers() {
+        var text = "[ 1, -2 ,0,2147483647,-2147483648 ]";
+
+        var values = PrimitiveArrayParser.parseIntArray(text, 0, text.length());
+
+        assertArrayEquals(new int[]{1, -2, 0, Integer.MAX_VALUE, Integer.MIN_VALUE}, values);
+    }
+
+    @Test
+    void parseIntArray_throwsExceptionWhenValueIsNotAnInt() {
+        assertThrows(JSONException.class, () -> PrimitiveArrayParser.parseIntArray("[1.5]", 0, 5));
+        assertThrows(JSONException.class, () -> PrimitiveArrayParser.parseIntArray("[2147483648]", 0, 12));
+        assertThrows(JSONException.class, () -> PrimitiveArrayParser.parseIntArray("[\"1\"]", 0, 5));
+        assertThrows(JSONException.class, () -> PrimitiveArrayParser.parseIntArray("[1,,]", 0, 5));
+        assertThrows(JSONException.class, () -> PrimitiveArrayParser.parseIntArray("[,]", 0, 3));
+    }
+
+    @Test
+    void parseIntArray_acceptsTrailingCommaLikeOrgJson() {
+        var text = "[1,2, ]";
+
+        var values = PrimitiveArrayParser.parseIntArray(text, 0, text.length());
+
+        assertArrayEquals(new int[]{1, 2}, values);
+        assertArrayEquals(new boolean[]{true}, PrimitiveArrayParser.parseBooleanArray("[true,]", 0, 7));
+    }
+
+    @Test
+    void parseLongArray_parsesLongRange() {
+        var text = "[9223372036854775807,-9223372036854775808]";
+
+        var values = PrimitiveArrayParser.parseLongArray(text, 0, text.length());
+
+        assertArrayEquals(new long[]{Long.MAX_VALUE, Long.MIN_VALUE}, values);
+    }
+
+    @Test
+    void parseDoubleArray_parsesEmptyArray() {
+        assertEquals(0, PrimitiveArrayParser.parseDoubleArray("[ ]", 0, 3).length);
+    }
+
+    @Test
+    void parseDoubleArray_parsesLikeTheJdk() {
+        var numbers = new String[]{
+                "0", "-0", "42", "47.11", "-1e-6", "1E+3", "0.05", "1.05", "123456789012345678901234", "4.9e-324", "1.7976931348623157e308",
+                "0.1000000000000000055511151231257827", "2.2250738585072014E-308", "1e400", "123.456e-300"
+        };
+        var text = "[" + String.join(",", numbers) + "]";
+
+        var values = PrimitiveArrayParser.parseDoubleArray(text, 0, text.length());
+
+        for (int i = 0; i < numbers.length; i++) {
+            assertEquals(Double.parseDouble(numbers[i]), values[i], 0.0, numbers[i]);
+        }
+    }
+
+    @Test
+    void parseDoubleArray_parsesRandomNumbersLikeTheJdk() {
+        var random = new Random(42);
+        var numbers = new String[10_000];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = i % 2 == 0
+                    ? Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20))
+                    : String.format(Locale.ROOT, "%.3f", random.nextGaussian() * 1000);
+        }
+        var text = "[" + String.join(",", numbers) + "]";
+
+        var values = PrimitiveArrayParser.parseDoubleArray(text, 0, text.length());
+
+        for (int i = 0; i < numbers.length; i++) {
+            assertEquals(Double.parseDouble(numbers[i]), values[i], 0.0, numbers[i]);
+        }
+    }
+
+    @Test
+    void parseBooleanArray_parsesBooleans() {
+        var text = "[true,false, true]";
+
+        assertArrayEquals(new boolean[]{true, false, true}, PrimitiveArrayParser.parseBooleanArray(text, 0, text.length()));
+        assertThrows(JSONException.class, () -> PrimitiveArrayParser.parseBooleanArray("[1]", 0, 3));
+    }
+}